@@ -0,0 +1,95 @@
+package study.datajpa.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.DataJpaApplication;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 같은 조회를 JPA(findBy*)와 @FastJdbcRead(readBy*)로 실행해서 비교한다. pageSize가 클수록 행당 비용 차이가 드러난다.
+ * 트랜잭션 밖에서 부르므로 JPA 쪽은 호출마다 EntityManager를 새로 만든다. (웹 요청 하나에서 조회 한 번과 비슷)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FastReadBenchmark {
+
+    @Param({"20", "200"})
+    int pageSize;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    PageRequest pageRequest;
+    Long memberId;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(DataJpaApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                        "logging.level.org.hibernate.SQL=warn",
+                        "decorator.datasource.p6spy.enable-logging=false")
+                .run();
+        memberRepository = context.getBean(MemberRepository.class);
+        TeamRepository teamRepository = context.getBean(TeamRepository.class);
+        context.getBean(TransactionTemplate.class).executeWithoutResult(status -> {
+            for (int t = 0; t < 10; t++) {
+                Team team = teamRepository.save(new Team("team" + t));
+                for (int i = 0; i < 100; i++) {
+                    memberRepository.save(new Member("user" + (i % 20), 20 + i % 4, team)); //나이마다 250명, 이름마다 50명
+                }
+            }
+        });
+        pageRequest = PageRequest.of(0, pageSize, Sort.by("id"));
+        memberId = memberRepository.findByUsername("user0").get(0).getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Member> findByAgeJpa() {
+        return memberRepository.findByAge(21, pageRequest);
+    }
+
+    @Benchmark
+    public Page<Member> findByAgeJdbc() {
+        return memberRepository.readByAge(21, pageRequest);
+    }
+
+    @Benchmark
+    public List<Member> findByUsernameJpa() {
+        return memberRepository.findByUsername("user1");
+    }
+
+    @Benchmark
+    public List<Member> findByUsernameJdbc() {
+        return memberRepository.readByUsername("user1");
+    }
+
+    @Benchmark
+    public Optional<Member> findByIdJpa() {
+        return memberRepository.findById(memberId);
+    }
+
+    @Benchmark
+    public Optional<Member> findByIdJdbc() {
+        return memberRepository.readById(memberId);
+    }
+}
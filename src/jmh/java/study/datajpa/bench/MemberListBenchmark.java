@@ -0,0 +1,73 @@
+package study.datajpa.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.DataJpaApplication;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /members 경로의 조회 비용 비교. -prof gc 의 gc.alloc.rate.norm(bytes/op)을 보면 된다.
+ *   - entityMap : findAll(pageable).map(MemberDto::new) (기존 방식)
+ *   - dtoProjection : findMemberDtoPage(pageable) (DTO 직접 조회)
+ * 인메모리 H2를 따로 띄우므로 로컬 H2 서버 없이 실행된다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MemberListBenchmark {
+
+    @Param({"20", "200"})
+    int pageSize;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    PageRequest pageRequest;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(DataJpaApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                        "logging.level.org.hibernate.SQL=warn",
+                        "decorator.datasource.p6spy.enable-logging=false")
+                .run();
+        memberRepository = context.getBean(MemberRepository.class);
+        TeamRepository teamRepository = context.getBean(TeamRepository.class);
+        context.getBean(TransactionTemplate.class).executeWithoutResult(status -> {
+            for (int t = 0; t < 10; t++) {
+                Team team = teamRepository.save(new Team("team" + t));
+                for (int i = 0; i < 100; i++) {
+                    memberRepository.save(new Member("user" + t + "_" + i, i, team));
+                }
+            }
+        });
+        pageRequest = PageRequest.of(1, pageSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<MemberDto> entityMap() {
+        return memberRepository.findAll(pageRequest).map(MemberDto::new);
+    }
+
+    @Benchmark
+    public Page<MemberDto> dtoProjection() {
+        return memberRepository.findMemberDtoPage(pageRequest);
+    }
+}
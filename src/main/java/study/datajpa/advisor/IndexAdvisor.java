@@ -0,0 +1,225 @@
+package study.datajpa.advisor;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.core.support.AbstractRepositoryMetadata;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+
+import javax.persistence.Column;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.Table;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 리포지토리 쿼리 메서드를 보고 필요한 복합 인덱스를 제안한다.
+ *   - 파생 쿼리는 PartTree로 메서드 이름을 파싱하고
+ *   - @Query(JPQL)는 where / order by 절에서 "별칭.필드"를 뽑아낸다. (네이티브 쿼리는 분석하지 않음)
+ *   - Pageable로 넘어오는 정렬은 메서드 이름에 없으므로 sortUsages로 직접 알려준다.
+ * 인덱스 컬럼 순서는 등호 조건 -> 범위 조건(하나만) -> 정렬 컬럼(범위 조건이 없을 때만) 이다.
+ */
+public class IndexAdvisor {
+
+    private static final Pattern ALIAS = Pattern.compile("(?i)\\b(?:from|update)\\s+(\\w+)\\s+(?:as\\s+)?(\\w+)");
+    private static final Pattern CLAUSES = Pattern.compile("(?is)\\bwhere\\b(.*?)(?:\\border\\s+by\\b(.*))?$");
+    private static final Pattern ORDER_ONLY = Pattern.compile("(?is)\\border\\s+by\\b(.*)$");
+    private static final String CONDITION = "\\.(\\w+(?:\\.\\w+)?)\\s*(=|<>|!=|>=|<=|>|<|\\bin\\b|\\blike\\b|\\bbetween\\b)";
+
+    public List<IndexSuggestion> analyze(Class<?> repositoryInterface) {
+        return analyze(repositoryInterface, Collections.emptyMap());
+    }
+
+    public List<IndexSuggestion> analyze(Class<?> repositoryInterface, Map<String, Sort> sortUsages) {
+        Class<?> domainType = AbstractRepositoryMetadata.getMetadata(repositoryInterface).getDomainType();
+        Map<List<String>, IndexSuggestion> suggestions = new LinkedHashMap<>();
+
+        for (Method method : repositoryInterface.getDeclaredMethods()) {
+            if (method.isDefault() || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            Sort sort = sortUsages.getOrDefault(method.getName(), Sort.unsorted());
+            List<String> columns = analyzeMethod(method, domainType, sort);
+            if (columns.isEmpty() || columns.equals(List.of(columnName(domainType, "id")))) {
+                continue; //조건이 없거나 PK로 충분한 경우
+            }
+            suggestions.computeIfAbsent(columns, c -> new IndexSuggestion(tableName(domainType), c))
+                    .getSources().add(repositoryInterface.getSimpleName() + "." + method.getName());
+        }
+        return removeCovered(suggestions.values());
+    }
+
+    /**
+     * 엔티티에 이미 선언된 @Index로 커버되지 않는 제안만 돌려준다.
+     */
+    public List<IndexSuggestion> findMissing(Class<?> repositoryInterface, Map<String, Sort> sortUsages) {
+        Class<?> domainType = AbstractRepositoryMetadata.getMetadata(repositoryInterface).getDomainType();
+        List<List<String>> existing = existingIndexes(domainType);
+        List<IndexSuggestion> missing = new ArrayList<>();
+        for (IndexSuggestion suggestion : analyze(repositoryInterface, sortUsages)) {
+            if (existing.stream().noneMatch(suggestion::isCoveredBy)) {
+                missing.add(suggestion);
+            }
+        }
+        return missing;
+    }
+
+    private List<String> analyzeMethod(Method method, Class<?> domainType, Sort sort) {
+        List<String> equality = new ArrayList<>();
+        List<String> range = new ArrayList<>();
+        List<String> order = new ArrayList<>();
+
+        Query query = method.getAnnotation(Query.class);
+        if (query != null) {
+            if (query.nativeQuery()) {
+                return Collections.emptyList();
+            }
+            parseJpql(query.value(), equality, range, order);
+        } else {
+            try {
+                PartTree tree = new PartTree(method.getName(), domainType);
+                for (Part part : tree.getParts()) {
+                    String path = part.getProperty().toDotPath();
+                    if (part.getType() == Part.Type.SIMPLE_PROPERTY || part.getType() == Part.Type.IN) {
+                        equality.add(path);
+                    } else {
+                        range.add(path);
+                    }
+                }
+                tree.getSort().forEach(o -> order.add(o.getProperty()));
+            } catch (RuntimeException e) {
+                return Collections.emptyList(); //쿼리 메서드가 아님 (커스텀 구현 등)
+            }
+        }
+        sort.forEach(o -> order.add(o.getProperty()));
+
+        LinkedHashSet<String> columns = new LinkedHashSet<>();
+        equality.forEach(p -> columns.add(columnName(domainType, p)));
+        if (!range.isEmpty()) {
+            columns.add(columnName(domainType, range.get(0)));
+        } else {
+            order.forEach(p -> columns.add(columnName(domainType, p)));
+        }
+        return new ArrayList<>(columns);
+    }
+
+    private void parseJpql(String jpql, List<String> equality, List<String> range, List<String> order) {
+        Matcher aliasMatcher = ALIAS.matcher(jpql);
+        if (!aliasMatcher.find()) {
+            return;
+        }
+        String alias = Pattern.quote(aliasMatcher.group(2));
+
+        String where = null;
+        String orderBy = null;
+        Matcher clauses = CLAUSES.matcher(jpql);
+        if (clauses.find()) {
+            where = clauses.group(1);
+            orderBy = clauses.group(2);
+        } else {
+            Matcher orderOnly = ORDER_ONLY.matcher(jpql);
+            if (orderOnly.find()) {
+                orderBy = orderOnly.group(1);
+            }
+        }
+
+        if (where != null) {
+            Matcher condition = Pattern.compile("(?i)\\b" + alias + CONDITION).matcher(where);
+            while (condition.find()) {
+                String operator = condition.group(2).toLowerCase();
+                if (operator.equals("=") || operator.equals("in")) {
+                    equality.add(condition.group(1));
+                } else {
+                    range.add(condition.group(1));
+                }
+            }
+        }
+        if (orderBy != null) {
+            Matcher property = Pattern.compile("\\b" + alias + "\\.(\\w+)").matcher(orderBy);
+            while (property.find()) {
+                order.add(property.group(1));
+            }
+        }
+    }
+
+    private List<IndexSuggestion> removeCovered(Collection<IndexSuggestion> suggestions) {
+        List<IndexSuggestion> result = new ArrayList<>();
+        for (IndexSuggestion suggestion : suggestions) {
+            boolean covered = suggestions.stream()
+                    .anyMatch(other -> other != suggestion && other.getColumns().size() > suggestion.getColumns().size()
+                            && suggestion.isCoveredBy(other.getColumns()));
+            if (!covered) {
+                result.add(suggestion);
+            } else {
+                //커버하는 쪽 인덱스에 출처를 합쳐준다.
+                suggestions.stream()
+                        .filter(other -> other != suggestion && suggestion.isCoveredBy(other.getColumns()))
+                        .forEach(other -> other.getSources().addAll(suggestion.getSources()));
+            }
+        }
+        return result;
+    }
+
+    private List<List<String>> existingIndexes(Class<?> domainType) {
+        List<List<String>> result = new ArrayList<>();
+        Table table = domainType.getAnnotation(Table.class);
+        if (table != null) {
+            for (Index index : table.indexes()) {
+                List<String> columns = new ArrayList<>();
+                for (String column : index.columnList().split(",")) {
+                    columns.add(column.trim().split("\\s+")[0].toLowerCase());
+                }
+                result.add(columns);
+            }
+        }
+        return result;
+    }
+
+    private String tableName(Class<?> domainType) {
+        Table table = domainType.getAnnotation(Table.class);
+        if (table != null && !table.name().isEmpty()) {
+            return table.name();
+        }
+        return toSnakeCase(domainType.getSimpleName());
+    }
+
+    /**
+     * 프로퍼티 경로 -> 컬럼 이름. @Column / @JoinColumn 이름이 있으면 그걸 쓰고 없으면 스프링 기본 네이밍(snake_case)을 따른다.
+     * team.id 같은 연관관계 경로는 FK 컬럼(team_id)이 된다.
+     */
+    private String columnName(Class<?> domainType, String path) {
+        String[] properties = path.split("\\.");
+        Field field = findField(domainType, properties[0]);
+        if (field == null) {
+            return toSnakeCase(properties[0]);
+        }
+        JoinColumn joinColumn = field.getAnnotation(JoinColumn.class);
+        if (joinColumn != null && !joinColumn.name().isEmpty()) {
+            return joinColumn.name();
+        }
+        Column column = field.getAnnotation(Column.class);
+        if (column != null && !column.name().isEmpty()) {
+            return column.name();
+        }
+        return toSnakeCase(path.replace('.', '_'));
+    }
+
+    private Field findField(Class<?> type, String name) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            try {
+                return current.getDeclaredField(name);
+            } catch (NoSuchFieldException ignored) {
+            }
+        }
+        return null;
+    }
+
+    private static String toSnakeCase(String name) {
+        return name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase();
+    }
+}
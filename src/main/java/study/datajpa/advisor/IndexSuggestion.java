@@ -0,0 +1,38 @@
+package study.datajpa.advisor;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+@Getter
+@ToString
+@EqualsAndHashCode(of = {"table", "columns"})
+public class IndexSuggestion {
+
+    private final String table;
+    private final List<String> columns;
+    private final Set<String> sources = new TreeSet<>(); //이 인덱스가 필요한 리포지토리 메서드
+
+    public IndexSuggestion(String table, List<String> columns) {
+        this.table = table;
+        this.columns = List.copyOf(columns);
+    }
+
+    //columns가 other의 앞부분과 같으면 other 인덱스로 커버된다. (username) 은 (username, age)로 커버됨
+    public boolean isCoveredBy(List<String> other) {
+        return other.size() >= columns.size() && other.subList(0, columns.size()).equals(columns);
+    }
+
+    public String getName() {
+        return "idx_" + table + "_" + String.join("_", columns);
+    }
+
+    //엔티티 @Table(indexes = ...)에 그대로 붙여넣을 수 있는 형태
+    public String toAnnotation() {
+        return "@Index(name = \"" + getName() + "\", columnList = \"" + String.join(", ", columns) + "\")";
+    }
+}
@@ -0,0 +1,22 @@
+package study.datajpa.cache;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 리포지토리 메서드의 결과를 QueryResultCache에 저장한다.
+ * tables에 적은 테이블 중 하나라도 커밋된 변경이 생기면 (TableVersions) 저장된 결과는 더 이상 쓰지 않는다.
+ *
+ * 주의
+ *   - 쿼리가 읽는 테이블을 빠짐없이 적어야 한다. (join한 테이블 포함)
+ *   - 엔티티는 영속성 컨텍스트에 묶여 있으므로 DTO, 스칼라, 카운트처럼 값만 돌려주는 메서드에만 붙이자.
+ *   - 캐시에서 꺼낸 List는 수정할 수 없다.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CachedQuery {
+
+    String[] tables();
+}
@@ -0,0 +1,33 @@
+package study.datajpa.cache;
+
+import lombok.Getter;
+
+import java.util.Map;
+
+@Getter
+public class QueryCacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long invalidated; //버전이 바뀌어 버린 결과 (misses에 포함)
+    private final long bypasses; //커밋 전 변경이 있는 트랜잭션이라 캐시를 거치지 않은 호출
+    private final long evictions;
+    private final long size;
+    private final Map<String, Long> tableVersions;
+
+    public QueryCacheStats(long hits, long misses, long invalidated, long bypasses, long evictions, long size,
+                           Map<String, Long> tableVersions) {
+        this.hits = hits;
+        this.misses = misses;
+        this.invalidated = invalidated;
+        this.bypasses = bypasses;
+        this.evictions = evictions;
+        this.size = size;
+        this.tableVersions = tableVersions;
+    }
+
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
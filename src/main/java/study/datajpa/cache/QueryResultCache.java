@@ -0,0 +1,196 @@
+package study.datajpa.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.hibernate.Session;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import study.datajpa.monitor.TransactionalEntityManagers;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @CachedQuery가 붙은 리포지토리 메서드의 결과 캐시.
+ *   - 키는 (메서드, 파라미터), 값은 (결과, 만들 때 읽은 테이블 버전)
+ *   - 꺼낼 때 테이블 버전이 그대로일 때만 돌려주므로 커밋된 변경 이후에 이전 결과가 나가는 일은 없다.
+ *   - 크기는 Caffeine(W-TinyLFU)으로 maximum-size 개까지만 유지한다.
+ *
+ * 테이블 버전(TableVersions)은 이 JVM 안의 커밋만 센다. 다른 인스턴스나 DB에 직접 한 변경은 무효화하지 못하므로
+ * 인스턴스가 하나일 때만 쓸 수 있고, 기본값은 꺼짐(datajpa.query-cache.enabled=false)이다.
+ * 꺼져 있으면 이 애스펙트와 TableVersions, TableWriteListener 모두 빈으로 등록되지 않는다.
+ *
+ * 현재 트랜잭션에 아직 커밋(또는 flush)하지 않은 변경이 있으면 캐시를 거치지 않고 DB에서 읽는다.
+ * 자기 변경이 보여야 하고, 그 결과는 다른 트랜잭션에 보여주면 안 되기 때문이다.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "datajpa.query-cache.enabled", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE + 1) //RepositoryInvocationAspect 다음, 다른 모니터링 애스펙트보다 먼저 (캐시 적중이면 쿼리가 없음)
+public class QueryResultCache {
+
+    private final TableVersions tableVersions;
+    private final TableWriteListener tableWriteListener;
+    private final ObjectProvider<EntityManagerFactory> emf; //애스펙트는 일찍 만들어지므로 지연 조회
+    private final Cache<CacheKey, CachedResult> cache;
+
+    //같은 CrudRepository.count라도 리포지토리마다 붙은 애노테이션이 다르므로 프록시 클래스별로 찾아둔다.
+    private final Map<Class<?>, Map<Method, Optional<CachedMethod>>> cachedMethods = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidated = new LongAdder();
+    private final LongAdder bypasses = new LongAdder();
+
+    public QueryResultCache(TableVersions tableVersions,
+                            TableWriteListener tableWriteListener,
+                            ObjectProvider<EntityManagerFactory> emf,
+                            @Value("${datajpa.query-cache.maximum-size:10000}") long maximumSize) {
+        this.tableVersions = tableVersions;
+        this.tableWriteListener = tableWriteListener;
+        this.emf = emf;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    @Around("study.datajpa.monitor.RepositoryPointcuts.repositoryMethods()")
+    public Object cache(ProceedingJoinPoint joinPoint) throws Throwable {
+        Class<?> proxyClass = joinPoint.getThis().getClass();
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        CachedMethod cachedMethod = cachedMethods.computeIfAbsent(proxyClass, c -> new ConcurrentHashMap<>())
+                .computeIfAbsent(method, m -> findCachedMethod(proxyClass, m))
+                .orElse(null);
+        if (cachedMethod == null) {
+            return joinPoint.proceed();
+        }
+        String[] tables = cachedMethod.tables;
+        if (hasPendingChanges(tables)) {
+            bypasses.increment();
+            return joinPoint.proceed();
+        }
+
+        CacheKey key = new CacheKey(cachedMethod.method, joinPoint.getArgs());
+        long[] versions = tableVersions.current(tables); //쿼리 전에 읽어야 쿼리 도중 커밋된 변경을 놓치지 않는다.
+        CachedResult cached = cache.getIfPresent(key);
+        if (cached != null) {
+            if (Arrays.equals(cached.versions, versions)) {
+                hits.increment();
+                return cached.value;
+            }
+            invalidated.increment();
+        }
+        misses.increment();
+        Object result = unmodifiable(joinPoint.proceed());
+        cache.put(key, new CachedResult(versions, result));
+        return result;
+    }
+
+    //count()처럼 CrudRepository에 선언된 메서드는 MemberRepository에서 다시 선언한 쪽에 애노테이션이 있다.
+    private static Optional<CachedMethod> findCachedMethod(Class<?> proxyClass, Method method) {
+        for (Class<?> type : ClassUtils.getAllInterfacesForClassAsSet(proxyClass)) {
+            Method candidate = ReflectionUtils.findMethod(type, method.getName(), method.getParameterTypes());
+            CachedQuery cachedQuery = candidate == null ? null : AnnotationUtils.findAnnotation(candidate, CachedQuery.class);
+            if (cachedQuery != null) {
+                return Optional.of(new CachedMethod(candidate, cachedQuery.tables()));
+            }
+        }
+        CachedQuery cachedQuery = AnnotationUtils.findAnnotation(method, CachedQuery.class);
+        return cachedQuery == null ? Optional.empty() : Optional.of(new CachedMethod(method, cachedQuery.tables()));
+    }
+
+    //커밋 안 된 쓰기(flush 된 것)나 flush 안 된 엔티티 변경이 있으면 true
+    private boolean hasPendingChanges(String[] tables) {
+        if (tableWriteListener.hasUncommittedWrites(tables)) {
+            return true;
+        }
+        EntityManagerFactory factory = emf.getIfAvailable();
+        EntityManager em = factory == null ? null : TransactionalEntityManagers.current(factory);
+        if (em == null) {
+            return false;
+        }
+        Session session = em.unwrap(Session.class);
+        //isDirty는 관리 중인 엔티티를 모두 dirty checking 하므로 비어있으면 건너뛴다.
+        return session.getStatistics().getEntityCount() > 0 && session.isDirty();
+    }
+
+    private static Object unmodifiable(Object result) {
+        if (result instanceof List) {
+            return Collections.unmodifiableList(new ArrayList<>((List<?>) result));
+        }
+        if (result instanceof Set) {
+            return Collections.unmodifiableSet(new LinkedHashSet<>((Set<?>) result));
+        }
+        return result;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public QueryCacheStats getStats() {
+        return new QueryCacheStats(hits.sum(), misses.sum(), invalidated.sum(), bypasses.sum(),
+                cache.stats().evictionCount(), cache.estimatedSize(), tableVersions.snapshot());
+    }
+
+    private static class CachedMethod {
+        private final Method method; //애노테이션이 선언된 메서드 (캐시 키)
+        private final String[] tables;
+
+        CachedMethod(Method method, String[] tables) {
+            this.method = method;
+            this.tables = tables;
+        }
+    }
+
+    private static class CacheKey {
+        private final Method method;
+        private final Object[] args;
+        private final int hash;
+
+        CacheKey(Method method, Object[] args) {
+            this.method = method;
+            this.args = args.clone();
+            this.hash = 31 * method.hashCode() + Arrays.deepHashCode(this.args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CacheKey)) return false;
+            CacheKey other = (CacheKey) o;
+            return method.equals(other.method) && Arrays.deepEquals(args, other.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static class CachedResult {
+        private final long[] versions;
+        private final Object value;
+
+        CachedResult(long[] versions, Object value) {
+            this.versions = versions;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package study.datajpa.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 테이블별 버전 카운터. 변경이 커밋될 때마다 해당 테이블의 버전을 올린다.
+ * 캐시된 결과는 만들 때 읽은 버전을 같이 들고 있다가 버전이 달라지면 버려진다.
+ * 카운터는 JVM 메모리에만 있으므로 이 인스턴스의 커밋만 반영된다. (여러 노드에서는 QueryResultCache를 켜지 않는다)
+ */
+@Component
+@ConditionalOnProperty(name = "datajpa.query-cache.enabled", havingValue = "true")
+public class TableVersions {
+
+    private final ConcurrentHashMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    public long current(String table) {
+        return counter(table).get();
+    }
+
+    public long[] current(String[] tables) {
+        long[] result = new long[tables.length];
+        for (int i = 0; i < tables.length; i++) {
+            result[i] = current(tables[i]);
+        }
+        return result;
+    }
+
+    public void bump(String table) {
+        counter(table).incrementAndGet();
+    }
+
+    public Map<String, Long> snapshot() {
+        Map<String, Long> result = new TreeMap<>();
+        versions.forEach((table, version) -> result.put(table, version.get()));
+        return result;
+    }
+
+    private AtomicLong counter(String table) {
+        return versions.computeIfAbsent(table.toLowerCase(Locale.ROOT), t -> new AtomicLong());
+    }
+}
@@ -0,0 +1,191 @@
+package study.datajpa.cache;
+
+import com.p6spy.engine.common.ConnectionInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DataSource를 지나는 insert / update / delete / merge 문을 보고 TableVersions를 올린다.
+ * p6spy에서 보므로 엔티티 flush, @Modifying 벌크 쿼리, 네이티브 쿼리, JdbcTemplate(쓰기 지연 버퍼, import)를 모두 잡는다.
+ *
+ * 버전은 변경이 커밋된 다음에만 올린다.
+ *   - auto-commit 커넥션이면 실행 직후
+ *   - 트랜잭션 중이면 그 커넥션이 commit 될 때 (rollback 되면 버리고, commit 없이 닫히면 혹시 몰라 올린다)
+ * 커밋 전에 올리면 그 사이 다른 스레드가 이전 데이터를 새 버전으로 캐시할 수 있다.
+ * 캐시를 끄면(datajpa.query-cache.enabled=false) 빈으로 등록되지 않으므로 SQL마다 파싱하는 비용도 없다.
+ */
+@Component
+@ConditionalOnProperty(name = "datajpa.query-cache.enabled", havingValue = "true")
+public class TableWriteListener extends SimpleJdbcEventListener {
+
+    private final TableVersions tableVersions;
+
+    //커밋을 기다리는 테이블. 커넥션은 한 번에 한 스레드만 쓰므로 안쪽 Set은 동기화하지 않는다.
+    private final ConcurrentHashMap<ConnectionInformation, Set<String>> pending = new ConcurrentHashMap<>();
+    //현재 스레드의 트랜잭션이 썼지만 아직 커밋하지 않은 테이블 (pending의 Set과 같은 객체)
+    private final ThreadLocal<Set<String>> uncommitted = new ThreadLocal<>();
+
+    public TableWriteListener(TableVersions tableVersions) {
+        this.tableVersions = tableVersions;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        String table = writtenTable(statementInformation.getSql());
+        if (table == null) {
+            return;
+        }
+        ConnectionInformation connection = statementInformation.getConnectionInformation();
+        if (isAutoCommit(connection)) {
+            tableVersions.bump(table);
+            return;
+        }
+        Set<String> tables = pending.computeIfAbsent(connection, c -> new HashSet<>());
+        tables.add(table);
+        uncommitted.set(tables);
+    }
+
+    @Override
+    public void onAfterCommit(ConnectionInformation connectionInformation, long timeElapsedNanos, SQLException e) {
+        complete(connectionInformation, true);
+    }
+
+    @Override
+    public void onAfterRollback(ConnectionInformation connectionInformation, long timeElapsedNanos, SQLException e) {
+        complete(connectionInformation, e != null); //rollback이 실패했으면 어떤 상태인지 모르므로 올린다.
+    }
+
+    @Override
+    public void onAfterConnectionClose(ConnectionInformation connectionInformation, SQLException e) {
+        complete(connectionInformation, true);
+    }
+
+    /**
+     * 현재 스레드의 트랜잭션이 tables 중 하나를 변경하고 아직 커밋하지 않았는지.
+     * 그런 트랜잭션 안에서는 커밋된 데이터로 만든 캐시 결과를 돌려주면 안 된다.
+     */
+    public boolean hasUncommittedWrites(String[] tables) {
+        Set<String> written = uncommitted.get();
+        if (written == null || written.isEmpty()) {
+            return false;
+        }
+        for (String table : tables) {
+            if (written.contains(table.toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void complete(ConnectionInformation connection, boolean bump) {
+        Set<String> tables = pending.remove(connection);
+        if (tables == null) {
+            return;
+        }
+        if (bump) {
+            tables.forEach(tableVersions::bump);
+        }
+        tables.clear(); //다른 스레드의 uncommitted가 들고 있을 수도 있으므로 비워둔다.
+        if (uncommitted.get() == tables) {
+            uncommitted.remove();
+        }
+    }
+
+    private static boolean isAutoCommit(ConnectionInformation connection) {
+        try {
+            return connection.getConnection().getAutoCommit();
+        } catch (SQLException e) {
+            return false; //모르면 커밋 때 올린다. (닫힐 때라도 올라간다)
+        }
+    }
+
+    /**
+     * "insert into member ...", "update member set ...", "delete from member ...", "merge into team_stats ..."에서 테이블 이름을 뽑는다.
+     * 조회 쿼리나 DDL이면 null
+     */
+    static String writtenTable(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        Tokens tokens = new Tokens(sql);
+        String verb = tokens.next();
+        if (verb == null) {
+            return null;
+        }
+        String table;
+        switch (verb) {
+            case "insert":
+            case "merge":
+                table = tokens.nextAfter("into");
+                break;
+            case "update":
+                table = tokens.next();
+                break;
+            case "delete":
+                table = tokens.nextAfter("from");
+                break;
+            case "truncate":
+                table = tokens.nextAfter("table");
+                break;
+            default:
+                return null;
+        }
+        if (table == null) {
+            return null;
+        }
+        int dot = table.lastIndexOf('.'); //스키마 제거
+        return table.substring(dot + 1).replace("\"", "");
+    }
+
+    //주석(/* */, --)과 공백을 건너뛰며 소문자 단어를 하나씩 꺼낸다.
+    private static class Tokens {
+        private final String sql;
+        private int position;
+
+        Tokens(String sql) {
+            this.sql = sql;
+        }
+
+        String nextAfter(String optionalKeyword) {
+            String token = next();
+            return optionalKeyword.equals(token) ? next() : token;
+        }
+
+        String next() {
+            skipWhitespaceAndComments();
+            int start = position;
+            while (position < sql.length()) {
+                char c = sql.charAt(position);
+                if (Character.isWhitespace(c) || c == '(' || c == ',' || c == ';') {
+                    break;
+                }
+                position++;
+            }
+            return start == position ? null : sql.substring(start, position).toLowerCase(Locale.ROOT);
+        }
+
+        private void skipWhitespaceAndComments() {
+            while (position < sql.length()) {
+                if (Character.isWhitespace(sql.charAt(position))) {
+                    position++;
+                } else if (sql.startsWith("/*", position)) {
+                    int end = sql.indexOf("*/", position + 2);
+                    position = end < 0 ? sql.length() : end + 2;
+                } else if (sql.startsWith("--", position)) {
+                    int end = sql.indexOf('\n', position);
+                    position = end < 0 ? sql.length() : end + 1;
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+}
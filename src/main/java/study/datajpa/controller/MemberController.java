@@ -1,23 +1,36 @@
 package study.datajpa.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 import study.datajpa.repository.MemberRepository;
 
 import javax.annotation.PostConstruct;
+import java.io.UncheckedIOException;
+import java.util.Set;
 
 @RequiredArgsConstructor
 @RestController
 public class MemberController {
 
+    //스트리밍 API에서 허용하는 정렬. streamMemberDto가 정렬할 수 있는 프로퍼티(MemberRepositoryImpl.SORT_COLUMNS) 중에서만 고른다.
+    private static final Set<String> STREAM_SORT_PROPERTIES = Set.of("id", "username", "age");
+
     private final MemberRepository memberRepository;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/members/{id}")
     public String findMember(@PathVariable("id") Long id) {
@@ -31,7 +44,52 @@ public class MemberController {
 
     @GetMapping("/members")
     public Page<MemberDto> list(@PageableDefault(size = 5) Pageable pageable) { //PageableDefault로 페이지 속성을 설정할 수 있다.
-        return memberRepository.findAll(pageable).map(MemberDto::new);
+        return memberRepository.findMemberDtoPage(pageable); //findAll(pageable).map(MemberDto::new)은 행마다 엔티티 + DTO를 만든다.
+    }
+
+    /**
+     * /members와 같은 페이지를 JDBC 커서에서 읽는 대로 응답에 바로 쓴다. (DTO 리스트, Page 객체를 만들지 않음)
+     * 응답 형태: {"page":0,"size":5,"content":[{"id":1,"username":"user0","teamName":null}, ...],"hasNext":true}
+     * 전체 개수(count 쿼리)는 구하지 않고 size + 1건을 읽어서 다음 페이지 여부만 알려준다.
+     *   - 정렬은 스트리밍을 시작하기 전에 검사한다. (응답이 시작되면 상태 코드를 바꿀 수 없으므로 400은 여기서)
+     *   - 헤더를 먼저 flush 하지 않으므로 첫 버퍼가 나가기 전의 DB 오류는 500으로 응답된다.
+     *   - 중간에 실패하면 닫는 괄호(]})를 쓰지 않는다. 잘린 JSON이라 클라이언트가 정상 응답으로 오해하지 않는다.
+     */
+    @GetMapping(value = "/members/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody stream(@PageableDefault(size = 5) Pageable pageable) {
+        for (Sort.Order order : pageable.getSort()) {
+            if (!STREAM_SORT_PROPERTIES.contains(order.getProperty())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "정렬할 수 없는 프로퍼티: " + order.getProperty());
+            }
+        }
+        return out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+                json.writeStartObject();
+                json.writeNumberField("page", pageable.getPageNumber());
+                json.writeNumberField("size", pageable.getPageSize());
+                json.writeArrayFieldStart("content");
+
+                int[] rows = {0};
+                memberRepository.streamMemberDto(pageable.getOffset(), pageable.getPageSize() + 1, pageable.getSort(),
+                        (id, username, teamName) -> {
+                            if (rows[0]++ == pageable.getPageSize()) {
+                                return; //size + 1번째 행은 다음 페이지가 있는지 확인용
+                            }
+                            json.writeStartObject();
+                            json.writeNumberField("id", id);
+                            json.writeStringField("username", username);
+                            json.writeStringField("teamName", teamName);
+                            json.writeEndObject();
+                        });
+
+                json.writeEndArray();
+                json.writeBooleanField("hasNext", rows[0] > pageable.getPageSize());
+                json.writeEndObject();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
     }
 
 //    @PostConstruct
@@ -0,0 +1,56 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.datajpa.cache.QueryCacheStats;
+import study.datajpa.cache.QueryResultCache;
+import study.datajpa.fetch.FetchPlanAdvice;
+import study.datajpa.fetch.FetchPlanProfiler;
+import study.datajpa.monitor.ContentionProfiler;
+import study.datajpa.monitor.ContentionStats;
+import study.datajpa.monitor.PersistenceContextGuard;
+import study.datajpa.monitor.PersistenceContextStats;
+import study.datajpa.monitor.SlowQueryEntry;
+import study.datajpa.monitor.SlowQueryListener;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+@RestController
+public class MonitorController {
+
+    private final SlowQueryListener slowQueryListener;
+    private final PersistenceContextGuard persistenceContextGuard;
+    private final ObjectProvider<QueryResultCache> queryResultCache; //datajpa.query-cache.enabled=true일 때만 있음
+    private final FetchPlanProfiler fetchPlanProfiler;
+    private final ContentionProfiler contentionProfiler;
+
+    @GetMapping("/monitor/slow-queries")
+    public List<SlowQueryEntry> slowQueries() {
+        return slowQueryListener.getBuffer().snapshot();
+    }
+
+    @GetMapping("/monitor/persistence-context")
+    public PersistenceContextStats persistenceContext() {
+        return persistenceContextGuard.getStats();
+    }
+
+    @GetMapping("/monitor/query-cache")
+    public ResponseEntity<QueryCacheStats> queryCache() {
+        QueryResultCache cache = queryResultCache.getIfAvailable();
+        return cache == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(cache.getStats());
+    }
+
+    @GetMapping("/monitor/fetch-plans")
+    public List<FetchPlanAdvice> fetchPlans() {
+        return fetchPlanProfiler.getAdvice();
+    }
+
+    @GetMapping("/monitor/contention")
+    public List<ContentionStats> contention() {
+        return contentionProfiler.getStats();
+    }
+}
@@ -0,0 +1,23 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import study.datajpa.entity.TeamStats;
+import study.datajpa.repository.TeamStatsRepository;
+
+@RequiredArgsConstructor
+@RestController
+public class TeamController {
+
+    private final TeamStatsRepository teamStatsRepository;
+
+    //팀 크기와 상관없이 team_stats 한 행만 읽는다. (count, team.members로 계산하지 않음)
+    //없는 팀이거나 아직 통계 행이 없으면(TeamStatsReconciler가 만들기 전) 404
+    @GetMapping("/teams/{id}/stats")
+    public ResponseEntity<TeamStats> stats(@PathVariable("id") Long id) {
+        return ResponseEntity.of(teamStatsRepository.findById(id));
+    }
+}
@@ -0,0 +1,63 @@
+package study.datajpa.dto;
+
+import java.util.Arrays;
+
+/**
+ * (id, age) 결과를 컬럼 단위 primitive 배열로 담는 컨테이너.
+ * 행마다 Object[] 튜플이나 Long/Integer 박싱이 생기지 않으므로 수백만 건을 읽어도 GC 부담이 적다.
+ */
+public class MemberAgeColumns {
+
+    private long[] ids;
+    private int[] ages;
+    private int size;
+
+    public MemberAgeColumns() {
+        this(1024);
+    }
+
+    public MemberAgeColumns(int initialCapacity) {
+        ids = new long[Math.max(initialCapacity, 16)];
+        ages = new int[ids.length];
+    }
+
+    public void add(long id, int age) {
+        if (size == ids.length) {
+            int newCapacity = ids.length + (ids.length >> 1);
+            ids = Arrays.copyOf(ids, newCapacity);
+            ages = Arrays.copyOf(ages, newCapacity);
+        }
+        ids[size] = id;
+        ages[size] = age;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long idAt(int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    public int ageAt(int index) {
+        checkIndex(index);
+        return ages[index];
+    }
+
+    //복사본을 돌려준다. 내부 배열을 그대로 노출하면 add 이후 길이가 맞지 않게 된다.
+    public long[] ids() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    public int[] ages() {
+        return Arrays.copyOf(ages, size);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+}
@@ -1,15 +1,18 @@
 package study.datajpa.dto;
 
 
-import lombok.Data;
+import lombok.Getter;
+import lombok.ToString;
 import study.datajpa.entity.Member;
 
-@Data //단순 Dto라서 Data annotation 을 사용했음. (Entity에는 스택오버플로가 발생할 수 있으므로 사용하지 않기)
+//조회 결과를 담기만 하므로 @Data 대신 @Getter만 사용. (setter, equals/hashCode가 필요 없음. Entity에는 스택오버플로가 발생할 수 있으므로 @Data 사용하지 않기)
+@Getter
+@ToString
 public class MemberDto {
 
-    private Long id;
-    private String username;
-    private String teamName;
+    private final Long id;
+    private final String username;
+    private final String teamName;
 
 
     public MemberDto(Long id, String username, String teamName) {
@@ -21,5 +24,6 @@ public class MemberDto {
     public MemberDto(Member member) {
         id = member.getId();
         username = member.getUsername();
+        teamName = null;
     }
 }
@@ -0,0 +1,33 @@
+package study.datajpa.entity;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+import static lombok.AccessLevel.PROTECTED;
+
+/**
+ * id 블록 할당 상태. segment(테이블 이름 등)마다 다음에 나눠줄 블록의 첫 id를 기록한다.
+ * 값은 JPA로 바꾸지 않고 IdBlocks가 SQL로 행 락을 잡고 갱신한다.
+ * 시간 순서 id의 노드 슬롯("{테이블}:node:{슬롯}") 행은 owner, leaseUntil로 어느 노드가 언제까지 쓰는지 기록한다. (블록 행은 null)
+ */
+@Getter
+@NoArgsConstructor(access = PROTECTED)
+@ToString
+@Immutable
+@Entity
+@Table(name = "id_block")
+public class IdBlock {
+
+    @Id
+    private String segment;
+    private long nextValue;
+    private String owner;
+    private LocalDateTime leaseUntil;
+}
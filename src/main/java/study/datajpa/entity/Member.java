@@ -1,6 +1,10 @@
 package study.datajpa.entity;
 
 import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.SQLDelete;
+import org.hibernate.annotations.Where;
 
 import javax.persistence.*;
 
@@ -15,15 +19,25 @@ import static lombok.AccessLevel.*;
         name="Member.findByUsername",
         query="select m from Member m where m.username = :username"
 ) //NamedQuery는 실무에서 거의 사용하지 않는다. 왜냐하면 Repository에 바로 쿼리를 작성할 수 있기 때문이다.
+@SQLDelete(sql = "update member set deleted = true, last_modified_date = current_timestamp where member_id = ?") //em.remove해도 실제로 지우지 않고 deleted만 표시한다.
+@Where(clause = "deleted = false") //모든 조회(JPQL, 파생 쿼리, team.members 컬렉션)에서 삭제된 회원을 제외
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_member_last_modified", columnList = "last_modified_date, member_id"), //변경 피드(키셋) 조회용
+        @Index(name = "idx_member_username_age", columnList = "username, age"), //findByUsername*, findUser, findByNames
+        @Index(name = "idx_member_age_username", columnList = "age, username"), //findByAge(정렬 username), bulkAgePlus
+        @Index(name = "idx_member_team", columnList = "team_id, member_id") //팀별 회원 페이징/키셋 배치, countByTeamId
+})
 public class Member extends BaseEntity {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "member_id")
+    @GenericGenerator(name = "member_id", strategy = "study.datajpa.id.BlockIdGenerator") //id_block에서 블록 단위로 예약해서 메모리로 발급
     @Column(name = "member_id")
     private Long id;
     private String username;
     private int age;
+    private boolean deleted; //soft delete 여부. 실제 삭제는 MemberPurgeJob이 나중에 몰아서 한다.
 
 
     @ManyToOne(fetch = LAZY)
@@ -48,8 +62,15 @@ public class Member extends BaseEntity {
     }
 
     //==연관관계 편의메서드==//
+    //team.members(inverse 컬렉션)가 초기화되지 않았으면 add는 Hibernate가 쌓아뒀다가 초기화할 때 합쳐준다. (프록시 팀이면 PK 조회로 팀만 초기화됨)
+    //remove는 컬렉션을 초기화해야 하므로 이전 팀이 이미 메모리에 올라와 있을 때만 맞춘다.
     public void changeTeam(Team team) {
+        if (this.team != null && Hibernate.isInitialized(this.team)) {
+            this.team.removeMember(this);
+        }
         this.team = team;
-        team.getMembers().add(this);
+        if (team != null) {
+            team.addMember(this);
+        }
     }
 }
@@ -4,6 +4,10 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.LazyCollection;
+import org.hibernate.annotations.LazyCollectionOption;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -15,18 +19,43 @@ import static lombok.AccessLevel.PROTECTED;
 @NoArgsConstructor(access = PROTECTED) // JPA는 기본적으로 기본생성자가 있어야함.(프록시 접근 등의 다양한 이유로..)
 @ToString(of = {"id", "name"}) // members처럼 연관관계 필드는 출력하지 말자. 양쪽으로 참조를 하다가 stackoverflow가 발생한다.
 @Entity
-public class Team {
-
-    @Id @GeneratedValue
+@Table(indexes = {
+        @Index(name = "idx_team_last_modified", columnList = "last_modified_date, team_id") //변경 피드(키셋) 조회용
+})
+public class Team extends BaseTimeEntity {
+
+    @Id
+    @GeneratedValue(generator = "team_id")
+    @GenericGenerator(name = "team_id", strategy = "study.datajpa.id.BlockIdGenerator") //id_block에서 블록 단위로 예약해서 메모리로 발급
     @Column(name = "team_id")
     private Long id;
     private String name;
 
+    /**
+     * 회원이 10만 명이 넘는 팀도 있으므로 통째로 읽지 않게 한다.
+     *   - EXTRA: size(), contains(), isEmpty()는 컬렉션을 초기화하지 않고 count / 단건 쿼리로 처리
+     *   - 페이지 단위로 읽을 때는 MemberRepository.findByTeamIdOrderByIdAsc, forEachTeamMemberBatch를 사용
+     */
     @OneToMany(mappedBy = "team")
+    @LazyCollection(LazyCollectionOption.EXTRA)
     private List<Member> members = new ArrayList<>();
 
 
     public Team(String name) {
         this.name = name;
     }
+
+    //==연관관계 편의메서드 (Member.changeTeam에서 사용)==//
+    //연관관계의 주인은 member.team이므로 DB에는 영향이 없다.
+    //add는 초기화되지 않은 inverse 컬렉션이면 Hibernate가 초기화하지 않고 쌓아뒀다가 나중에 읽을 때 합쳐준다.
+    void addMember(Member member) {
+        members.add(member);
+    }
+
+    //remove는 컬렉션을 초기화하므로 이미 메모리에 올라온 경우에만 맞춘다.
+    void removeMember(Member member) {
+        if (Hibernate.isInitialized(members)) {
+            members.remove(member);
+        }
+    }
 }
@@ -0,0 +1,37 @@
+package study.datajpa.entity;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import static lombok.AccessLevel.PROTECTED;
+
+/**
+ * 팀별 회원 수 / 나이 합계를 미리 모아둔 테이블. 팀 크기와 상관없이 한 행만 읽으면 된다.
+ * 값은 JPA로 바꾸지 않고 TeamStatsListener(회원 변경마다 증분)와 TeamStatsReconciler(벌크 연산 후 재계산)가 SQL로 갱신한다.
+ * soft delete된 회원은 세지 않는다.
+ */
+@Getter
+@NoArgsConstructor(access = PROTECTED)
+@ToString
+@Immutable
+@Entity
+@Table(name = "team_stats")
+public class TeamStats {
+
+    @Id
+    @Column(name = "team_id")
+    private Long teamId;
+    private long memberCount;
+    private long ageSum;
+
+    public double getAverageAge() {
+        return memberCount == 0 ? 0 : (double) ageSum / memberCount;
+    }
+}
@@ -0,0 +1,29 @@
+package study.datajpa.entity;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import static lombok.AccessLevel.PROTECTED;
+
+/**
+ * 쓰기 지연 저널(디렉토리)마다 DB에 반영이 끝난 마지막 세그먼트 번호.
+ * MemberWriteBehindBuffer가 batch update와 같은 트랜잭션에서 SQL로 갱신한다.
+ */
+@Getter
+@NoArgsConstructor(access = PROTECTED)
+@ToString
+@Immutable
+@Entity
+@Table(name = "write_behind_watermark")
+public class WriteBehindWatermark {
+
+    @Id
+    private String journalDir;
+    private long flushedSegment;
+}
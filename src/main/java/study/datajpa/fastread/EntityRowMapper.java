@@ -0,0 +1,244 @@
+package study.datajpa.fastread;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Hibernate 매핑(EntityPersister)을 보고 엔티티 한 종류의 select 컬럼 목록과 행 -> 엔티티 매퍼를 한 번 만들어둔다.
+ *   - 컬럼마다 (ResultSet에서 타입에 맞게 꺼내는 reader, 필드에 넣는 MethodHandle)을 미리 정해두므로
+ *     행을 읽을 때는 리플렉션도, Hibernate 타입 / 스냅샷 / 이벤트도 거치지 않는다.
+ *   - ManyToOne은 joins가 true일 때 대상 엔티티를 left join해서 같이 채운다. (한 단계까지. 대상 엔티티의 연관관계는 null)
+ *   - 컬렉션은 엔티티 생성자가 만든 그대로 둔다.
+ */
+class EntityRowMapper<T> {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final AbstractEntityPersister persister;
+    private final String alias;
+    private final MethodHandle constructor;
+    private final List<ColumnMapping> columns = new ArrayList<>();
+    private final List<JoinMapping> joins = new ArrayList<>();
+
+    EntityRowMapper(SessionFactoryImplementor sessionFactory, Class<T> type, String alias, boolean joins) {
+        this.persister = (AbstractEntityPersister) sessionFactory.getMetamodel().entityPersister(type);
+        this.alias = alias;
+        this.constructor = constructor(type);
+
+        columns.add(new ColumnMapping(qualify(persister.getIdentifierColumnNames()[0]),
+                reader(persister.getIdentifierType().getReturnedClass()),
+                setter(type, persister.getIdentifierPropertyName())));
+        String[] names = persister.getPropertyNames();
+        Type[] types = persister.getPropertyTypes();
+        for (int i = 0; i < names.length; i++) {
+            if (types[i].isCollectionType()) {
+                continue;
+            }
+            if (types[i].isEntityType()) {
+                if (joins) {
+                    this.joins.add(new JoinMapping(sessionFactory, types[i].getReturnedClass(), alias + "_" + this.joins.size(),
+                            qualify(persister.getPropertyColumnNames(i)[0]), setter(type, names[i])));
+                }
+                continue;
+            }
+            columns.add(new ColumnMapping(qualify(persister.getPropertyColumnNames(i)[0]),
+                    reader(types[i].getReturnedClass()), setter(type, names[i])));
+        }
+    }
+
+    String getTableName() {
+        return persister.getTableName();
+    }
+
+    String getAlias() {
+        return alias;
+    }
+
+    //@Where 조건 (없으면 빈 문자열)
+    String whereFragment() {
+        String fragment = persister.filterFragment(alias, Collections.emptyMap()).trim();
+        return fragment.startsWith("and ") ? fragment.substring(4) : fragment;
+    }
+
+    /**
+     * property(또는 "team.id"처럼 ManyToOne 대상의 id) -> 컬럼. 지원하지 않으면 IllegalArgumentException
+     */
+    String column(String propertyPath) {
+        String[] path = propertyPath.split("\\.");
+        if (path.length == 1 && path[0].equals(persister.getIdentifierPropertyName())) {
+            return qualify(persister.getIdentifierColumnNames()[0]);
+        }
+        if (path.length == 1 && !persister.getPropertyType(path[0]).isAssociationType()) {
+            return qualify(persister.getPropertyColumnNames(path[0])[0]);
+        }
+        if (path.length == 2 && persister.getPropertyType(path[0]).isEntityType()
+                && path[1].equals(targetIdentifierPropertyName((EntityType) persister.getPropertyType(path[0])))) {
+            //team.id는 join 없이 member.team_id로 비교. team.name 같은 다른 프로퍼티는 FK로 바꿀 수 없다.
+            return qualify(persister.getPropertyColumnNames(path[0])[0]);
+        }
+        throw new IllegalArgumentException(persister.getEntityName() + "." + propertyPath + "는 JDBC 조회에서 지원하지 않습니다.");
+    }
+
+    private String targetIdentifierPropertyName(EntityType type) {
+        return persister.getFactory().getMetamodel().entityPersister(type.getAssociatedEntityName()).getIdentifierPropertyName();
+    }
+
+    String selectColumns() {
+        StringJoiner joiner = new StringJoiner(", ");
+        columns.forEach(column -> joiner.add(column.column));
+        joins.forEach(join -> joiner.add(join.target.selectColumns()));
+        return joiner.toString();
+    }
+
+    String fromClause() {
+        StringBuilder from = new StringBuilder(getTableName()).append(' ').append(alias);
+        for (JoinMapping join : joins) {
+            EntityRowMapper<?> target = join.target;
+            from.append(" left join ").append(target.getTableName()).append(' ').append(target.alias)
+                    .append(" on ").append(target.column(target.persister.getIdentifierPropertyName())).append(" = ").append(join.foreignKey);
+            String where = target.whereFragment();
+            if (!where.isEmpty()) {
+                from.append(" and ").append(where);
+            }
+        }
+        return from.toString();
+    }
+
+    int columnCount() {
+        int count = columns.size();
+        for (JoinMapping join : joins) {
+            count += join.target.columnCount();
+        }
+        return count;
+    }
+
+    /**
+     * @param offset 이 엔티티의 첫 컬럼 위치 (1부터)
+     */
+    @SuppressWarnings("unchecked")
+    T map(ResultSet rs, int offset) throws SQLException {
+        Object id = columns.get(0).reader.read(rs, offset);
+        if (id == null) { //left join 대상이 없음
+            return null;
+        }
+        try {
+            Object entity = constructor.invokeExact();
+            columns.get(0).setter.invokeExact(entity, id);
+            for (int i = 1; i < columns.size(); i++) {
+                ColumnMapping column = columns.get(i);
+                column.setter.invokeExact(entity, column.reader.read(rs, offset + i));
+            }
+            int next = offset + columns.size();
+            for (JoinMapping join : joins) {
+                join.setter.invokeExact(entity, (Object) join.target.map(rs, next));
+                next += join.target.columnCount();
+            }
+            return (T) entity;
+        } catch (SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String qualify(String column) {
+        return alias + "." + column;
+    }
+
+    private static MethodHandle constructor(Class<?> type) {
+        try {
+            return MethodHandles.privateLookupIn(type, LOOKUP)
+                    .findConstructor(type, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(type.getName() + "에 기본 생성자가 없습니다.", e);
+        }
+    }
+
+    private static MethodHandle setter(Class<?> type, String property) {
+        Field field = ReflectionUtils.findField(type, property);
+        if (field == null) {
+            throw new IllegalStateException(type.getName() + "." + property + " 필드가 없습니다.");
+        }
+        try {
+            return MethodHandles.privateLookupIn(field.getDeclaringClass(), LOOKUP)
+                    .unreflectSetter(field)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //Hibernate가 같은 컬럼을 읽을 때와 같은 값이 나오도록 타입별로 꺼낸다.
+    private static ColumnReader reader(Class<?> javaType) {
+        if (javaType == Long.class || javaType == long.class) {
+            return (rs, i) -> {
+                long value = rs.getLong(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (javaType == Integer.class || javaType == int.class) {
+            return (rs, i) -> {
+                int value = rs.getInt(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (javaType == Boolean.class || javaType == boolean.class) {
+            return (rs, i) -> {
+                boolean value = rs.getBoolean(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (javaType == String.class) {
+            return ResultSet::getString;
+        }
+        if (javaType == LocalDateTime.class) {
+            return (rs, i) -> {
+                Timestamp value = rs.getTimestamp(i);
+                return value == null ? null : value.toLocalDateTime();
+            };
+        }
+        throw new IllegalStateException(javaType.getName() + " 타입 컬럼은 JDBC 조회에서 지원하지 않습니다.");
+    }
+
+    interface ColumnReader {
+        Object read(ResultSet rs, int index) throws SQLException;
+    }
+
+    private static class ColumnMapping {
+        private final String column;
+        private final ColumnReader reader;
+        private final MethodHandle setter;
+
+        ColumnMapping(String column, ColumnReader reader, MethodHandle setter) {
+            this.column = column;
+            this.reader = reader;
+            this.setter = setter;
+        }
+    }
+
+    private static class JoinMapping {
+        private final EntityRowMapper<?> target;
+        private final String foreignKey;
+        private final MethodHandle setter;
+
+        JoinMapping(SessionFactoryImplementor sessionFactory, Class<?> targetType, String alias, String foreignKey, MethodHandle setter) {
+            this.target = new EntityRowMapper<>(sessionFactory, targetType, alias, false);
+            this.foreignKey = foreignKey;
+            this.setter = setter;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package study.datajpa.fastread;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 파생 쿼리 메서드(readById, readByUsername ...)를 Hibernate를 거치지 않고 JDBC로 바로 실행한다. (FastJdbcReadAspect)
+ * 메서드 이름은 처음 호출할 때 한 번 SQL로 바꿔두고, 행은 미리 만들어둔 컬럼 매퍼로 엔티티에 채운다.
+ *
+ * 돌려주는 엔티티는 읽기 전용이다.
+ *   - 영속성 컨텍스트에 들어가지 않으므로 값을 바꿔도 저장되지 않고, 같은 id를 다시 읽으면 다른 객체가 나온다.
+ *   - ManyToOne(team)은 left join으로 같이 읽어서 채운다. 그 엔티티의 컬렉션(team.members)은 비어 있다.
+ * 지원하는 리턴 타입: 엔티티, Optional, List, Slice, Page (Pageable, Sort 파라미터 가능)
+ * datajpa.fast-read.enabled=false면 애노테이션을 무시하고 Spring Data JPA가 같은 메서드를 실행한다.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FastJdbcRead {
+}
@@ -0,0 +1,74 @@
+package study.datajpa.fastread;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.data.repository.Repository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import study.datajpa.monitor.TransactionalEntityManagers;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @FastJdbcRead가 붙은 리포지토리 메서드를 Spring Data JPA 대신 FastReadQuery(JDBC)로 실행한다.
+ * 같은 트랜잭션에서 아직 flush되지 않은 변경이 있으면 먼저 flush해서 JPA로 읽을 때와 같은 결과가 나오게 한다.
+ */
+@Aspect
+@Component
+public class FastJdbcReadAspect {
+
+    private final ObjectProvider<EntityManagerFactory> emf; //애스펙트는 일찍 만들어지므로 지연 조회
+    private final ObjectProvider<JdbcTemplate> jdbcTemplate;
+    private final boolean enabled;
+
+    private final Map<Method, Optional<FastReadQuery>> queries = new ConcurrentHashMap<>();
+
+    public FastJdbcReadAspect(ObjectProvider<EntityManagerFactory> emf,
+                              ObjectProvider<JdbcTemplate> jdbcTemplate,
+                              @Value("${datajpa.fast-read.enabled:true}") boolean enabled) {
+        this.emf = emf;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    @Around("study.datajpa.monitor.RepositoryPointcuts.repositoryMethods()")
+    public Object read(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!enabled) {
+            return joinPoint.proceed();
+        }
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        FastReadQuery query = queries.computeIfAbsent(method, this::compile).orElse(null);
+        if (query == null) {
+            return joinPoint.proceed();
+        }
+        EntityManager em = TransactionalEntityManagers.current(emf.getObject());
+        if (em != null && em.isJoinedToTransaction()) {
+            em.flush();
+        }
+        return query.execute(jdbcTemplate.getObject(), joinPoint.getArgs());
+    }
+
+    private Optional<FastReadQuery> compile(Method method) {
+        if (AnnotationUtils.findAnnotation(method, FastJdbcRead.class) == null) {
+            return Optional.empty();
+        }
+        Class<?>[] typeArguments = GenericTypeResolver.resolveTypeArguments(method.getDeclaringClass(), Repository.class);
+        if (typeArguments == null) {
+            throw new IllegalStateException("@FastJdbcRead " + method + ": 리포지토리 엔티티 타입을 알 수 없습니다.");
+        }
+        SessionFactoryImplementor sessionFactory = emf.getObject().unwrap(SessionFactoryImplementor.class);
+        return Optional.of(new FastReadQuery(sessionFactory, typeArguments[0], method));
+    }
+}
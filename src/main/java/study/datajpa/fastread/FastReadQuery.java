@@ -0,0 +1,237 @@
+package study.datajpa.fastread;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.data.domain.*;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.lang.reflect.Method;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * @FastJdbcRead 메서드 하나를 SQL로 바꿔둔 것. 메서드 이름을 Spring Data와 같은 PartTree로 해석한다.
+ *   - 조건: =, <>, <, <=, >, >=, between, in, is null, is not null (And / Or)
+ *   - 정렬: 이름의 OrderBy, Sort / Pageable 파라미터. First / Top
+ *   - ignoreCase, distinct, count / exists / delete는 지원하지 않는다. (처음 호출할 때 IllegalStateException)
+ * 조건 파라미터에 null을 넘기면 JPA는 is null로 바꾸지만 SQL은 미리 만들어두므로 IllegalArgumentException을 던진다.
+ */
+class FastReadQuery {
+
+    private static final String ALIAS = "m";
+
+    private final Method method;
+    private final EntityRowMapper<?> mapper;
+    private final RowMapper<Object> rowMapper;
+    private final String selectSql;
+    private final String countSql;
+    private final List<Integer> conditionParameters = new ArrayList<>(); //조건에 바인딩할 메서드 파라미터 위치
+    private final Sort staticSort;
+    private final Integer maxResults;
+    private final int pageableIndex;
+    private final int sortIndex;
+    private final ResultKind resultKind;
+
+    FastReadQuery(SessionFactoryImplementor sessionFactory, Class<?> domainType, Method method) {
+        this.method = method;
+        this.mapper = new EntityRowMapper<>(sessionFactory, domainType, ALIAS, true);
+        this.rowMapper = (rs, rowNum) -> mapper.map(rs, 1);
+        this.resultKind = ResultKind.of(method, domainType);
+
+        PartTree tree = new PartTree(method.getName(), domainType);
+        if (tree.isDistinct() || tree.isCountProjection() || tree.isExistsProjection() || tree.isDelete()) {
+            throw unsupported("distinct / count / exists / delete");
+        }
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        pageableIndex = indexOf(parameterTypes, Pageable.class);
+        sortIndex = indexOf(parameterTypes, Sort.class);
+        Iterator<Integer> bindable = bindableParameters(parameterTypes).iterator();
+
+        StringJoiner or = new StringJoiner(" or ");
+        for (PartTree.OrPart orPart : tree) {
+            StringJoiner and = new StringJoiner(" and ");
+            for (Part part : orPart) {
+                and.add(condition(part, bindable));
+            }
+            or.add("(" + and + ")");
+        }
+        List<String> where = new ArrayList<>();
+        if (tree.getParts().iterator().hasNext()) {
+            where.add("(" + or + ")");
+        }
+        String filter = mapper.whereFragment();
+        if (!filter.isEmpty()) {
+            where.add(filter);
+        }
+        String whereClause = where.isEmpty() ? "" : " where " + String.join(" and ", where);
+
+        this.selectSql = "select " + mapper.selectColumns() + " from " + mapper.fromClause() + whereClause;
+        this.countSql = "select count(*) from " + mapper.getTableName() + " " + ALIAS + whereClause;
+        this.staticSort = tree.getSort();
+        this.maxResults = tree.getMaxResults();
+    }
+
+    Object execute(JdbcTemplate jdbcTemplate, Object[] args) {
+        List<Object> parameters = new ArrayList<>();
+        for (int index : conditionParameters) {
+            parameters.add(bindValue(args[index]));
+        }
+        Pageable pageable = pageableIndex < 0 || args[pageableIndex] == null ? Pageable.unpaged() : (Pageable) args[pageableIndex];
+        Sort sort = staticSort.and(sortIndex < 0 || args[sortIndex] == null ? Sort.unsorted() : (Sort) args[sortIndex]).and(pageable.getSort());
+
+        StringBuilder sql = new StringBuilder(selectSql);
+        if (sort.isSorted()) {
+            sql.append(" order by ").append(orderBy(sort));
+        }
+        List<Object> selectParameters = new ArrayList<>(parameters);
+        Integer limit = limit(pageable);
+        if (limit != null) {
+            sql.append(" limit ? offset ?");
+            selectParameters.add(resultKind == ResultKind.SLICE ? limit + 1 : limit); //다음 슬라이스가 있는지 보려고 하나 더
+            selectParameters.add(pageable.isPaged() ? pageable.getOffset() : 0);
+        }
+        List<Object> rows = jdbcTemplate.query(sql.toString(), rowMapper, selectParameters.toArray());
+
+        switch (resultKind) {
+            case SINGLE:
+                return DataAccessUtils.singleResult(rows);
+            case OPTIONAL:
+                return Optional.ofNullable(DataAccessUtils.singleResult(rows));
+            case PAGE:
+                return PageableExecutionUtils.getPage(rows, pageable,
+                        () -> jdbcTemplate.queryForObject(countSql, Long.class, parameters.toArray()));
+            case SLICE:
+                boolean hasNext = limit != null && rows.size() > limit;
+                return new SliceImpl<>(hasNext ? rows.subList(0, limit) : rows, pageable, hasNext);
+            default:
+                return rows;
+        }
+    }
+
+    private String condition(Part part, Iterator<Integer> bindable) {
+        if (part.shouldIgnoreCase() != Part.IgnoreCaseType.NEVER) {
+            throw unsupported("IgnoreCase");
+        }
+        String column = mapper.column(part.getProperty().toDotPath());
+        switch (part.getType()) {
+            case SIMPLE_PROPERTY:
+                return bind(column + " = ?", bindable);
+            case NEGATING_SIMPLE_PROPERTY:
+                return bind(column + " <> ?", bindable);
+            case LESS_THAN:
+            case BEFORE:
+                return bind(column + " < ?", bindable);
+            case LESS_THAN_EQUAL:
+                return bind(column + " <= ?", bindable);
+            case GREATER_THAN:
+            case AFTER:
+                return bind(column + " > ?", bindable);
+            case GREATER_THAN_EQUAL:
+                return bind(column + " >= ?", bindable);
+            case BETWEEN:
+                return bind(bind(column + " between ? and ?", bindable), bindable);
+            case IN:
+                return bind(column + " in (unnest(?))", bindable);
+            case IS_NULL:
+                return column + " is null";
+            case IS_NOT_NULL:
+                return column + " is not null";
+            default:
+                throw unsupported(part.getType().name());
+        }
+    }
+
+    private String bind(String condition, Iterator<Integer> bindable) {
+        if (!bindable.hasNext()) {
+            throw unsupported("파라미터 수가 조건과 맞지 않음");
+        }
+        conditionParameters.add(bindable.next());
+        return condition;
+    }
+
+    private Object bindValue(Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException(method.getName() + "에 null 조건은 지원하지 않습니다. JPA 메서드를 사용하세요.");
+        }
+        if (value instanceof LocalDateTime) {
+            return Timestamp.valueOf((LocalDateTime) value);
+        }
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).toArray(); //in (unnest(?)) : H2 배열 파라미터
+        }
+        return value;
+    }
+
+    private Integer limit(Pageable pageable) {
+        Integer limit = pageable.isPaged() ? (Integer) pageable.getPageSize() : null;
+        if (maxResults != null) {
+            limit = limit == null ? maxResults : Math.min(limit, maxResults);
+        }
+        return limit;
+    }
+
+    private String orderBy(Sort sort) {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (Sort.Order order : sort) {
+            if (order.isIgnoreCase()) {
+                throw unsupported("Sort.ignoreCase");
+            }
+            joiner.add(mapper.column(order.getProperty()) + (order.isAscending() ? " asc" : " desc"));
+        }
+        return joiner.toString();
+    }
+
+    private IllegalStateException unsupported(String feature) {
+        return new IllegalStateException("@FastJdbcRead " + method.getDeclaringClass().getSimpleName() + "." + method.getName()
+                + ": " + feature + "는 지원하지 않습니다.");
+    }
+
+    private static int indexOf(Class<?>[] parameterTypes, Class<?> type) {
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (type.isAssignableFrom(parameterTypes[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<Integer> bindableParameters(Class<?>[] parameterTypes) {
+        List<Integer> bindable = new ArrayList<>();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (!Pageable.class.isAssignableFrom(parameterTypes[i]) && !Sort.class.isAssignableFrom(parameterTypes[i])) {
+                bindable.add(i);
+            }
+        }
+        return bindable;
+    }
+
+    enum ResultKind {
+        SINGLE, OPTIONAL, LIST, SLICE, PAGE;
+
+        static ResultKind of(Method method, Class<?> domainType) {
+            Class<?> returnType = method.getReturnType();
+            if (returnType == domainType) {
+                return SINGLE;
+            }
+            if (returnType == Optional.class) {
+                return OPTIONAL;
+            }
+            if (returnType == Page.class) {
+                return PAGE;
+            }
+            if (returnType == Slice.class) {
+                return SLICE;
+            }
+            if (returnType == List.class || returnType == Collection.class || returnType == Iterable.class) {
+                return LIST;
+            }
+            throw new IllegalStateException("@FastJdbcRead " + method.getName() + ": 리턴 타입 " + returnType.getSimpleName()
+                    + "은 지원하지 않습니다. (엔티티, Optional, List, Slice, Page)");
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package study.datajpa.fetch;
+
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.Subgraph;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 호출하는 쪽에서 고르는 fetch 전략. 같이 읽을 연관관계를 경로로 적는다. ("team", "team.members")
+ *   - lazy()             : 아무것도 같이 읽지 않는다. (findAll과 같음)
+ *   - of("team")         : team을 fetch join 한 것처럼 같이 읽는다. (findMemberFetchJoin, findMemberEntityGraph와 같음)
+ *   - auto()             : FetchPlanProfiler가 호출 위치별로 추천하는 계획을 쓴다. 추천이 아직 없으면 fallback
+ * 실행할 때는 EntityGraph(javax.persistence.fetchgraph 힌트)로 바꿔서 쿼리에 붙인다.
+ */
+public final class FetchPlan {
+
+    private static final FetchPlan LAZY = new FetchPlan(Collections.emptySet(), null);
+
+    private final Set<String> paths;
+    private final FetchPlan fallback; //auto()일 때만 있음
+
+    private FetchPlan(Set<String> paths, FetchPlan fallback) {
+        this.paths = paths;
+        this.fallback = fallback;
+    }
+
+    public static FetchPlan lazy() {
+        return LAZY;
+    }
+
+    public static FetchPlan of(String... paths) {
+        return of(Arrays.asList(paths));
+    }
+
+    public static FetchPlan of(Iterable<String> paths) {
+        TreeSet<String> sorted = new TreeSet<>();
+        paths.forEach(sorted::add);
+        return sorted.isEmpty() ? LAZY : new FetchPlan(Collections.unmodifiableSet(sorted), null);
+    }
+
+    public static FetchPlan auto() {
+        return auto(LAZY);
+    }
+
+    public static FetchPlan auto(FetchPlan fallback) {
+        return new FetchPlan(Collections.emptySet(), Objects.requireNonNull(fallback));
+    }
+
+    public Set<String> getPaths() {
+        return paths;
+    }
+
+    public boolean isLazy() {
+        return fallback == null && paths.isEmpty();
+    }
+
+    public boolean isAuto() {
+        return fallback != null;
+    }
+
+    public FetchPlan getFallback() {
+        return fallback;
+    }
+
+    /**
+     * 컬렉션을 같이 읽으면 루트 엔티티가 컬렉션 크기만큼 중복되므로 distinct가 필요하다.
+     */
+    public boolean fetchesCollection(Metamodel metamodel, Class<?> rootType) {
+        for (String path : paths) {
+            ManagedType<?> type = metamodel.managedType(rootType);
+            for (String name : path.split("\\.")) {
+                Attribute<?, ?> attribute = type.getAttribute(name);
+                if (attribute.isCollection()) {
+                    return true;
+                }
+                type = metamodel.managedType(targetType(attribute));
+            }
+        }
+        return false;
+    }
+
+    public <T> EntityGraph<T> toEntityGraph(EntityManager em, Class<T> rootType) {
+        //"team", "team.members" -> team { members }
+        Node root = new Node();
+        for (String path : paths) {
+            Node node = root;
+            for (String name : path.split("\\.")) {
+                node = node.children.computeIfAbsent(name, n -> new Node());
+            }
+        }
+        EntityGraph<T> graph = em.createEntityGraph(rootType);
+        root.children.forEach((name, node) -> {
+            if (node.children.isEmpty()) {
+                graph.addAttributeNodes(name);
+            } else {
+                node.addTo(graph.addSubgraph(name));
+            }
+        });
+        return graph;
+    }
+
+    private static class Node {
+        private final Map<String, Node> children = new TreeMap<>();
+
+        void addTo(Subgraph<?> subgraph) {
+            children.forEach((name, node) -> {
+                if (node.children.isEmpty()) {
+                    subgraph.addAttributeNodes(name);
+                } else {
+                    node.addTo(subgraph.addSubgraph(name));
+                }
+            });
+        }
+    }
+
+    //컬렉션 경로의 원소 타입 (profiler가 후보 경로를 만들 때 사용)
+    static Class<?> targetType(Attribute<?, ?> attribute) {
+        return attribute.isCollection()
+                ? ((PluralAttribute<?, ?, ?>) attribute).getElementType().getJavaType()
+                : attribute.getJavaType();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FetchPlan)) return false;
+        FetchPlan other = (FetchPlan) o;
+        return paths.equals(other.paths) && Objects.equals(fallback, other.fallback);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(paths, fallback);
+    }
+
+    @Override
+    public String toString() {
+        if (isAuto()) {
+            return "auto(" + fallback + ")";
+        }
+        return isLazy() ? "lazy" : paths.toString();
+    }
+}
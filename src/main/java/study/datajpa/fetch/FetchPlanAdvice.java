@@ -0,0 +1,27 @@
+package study.datajpa.fetch;
+
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * 호출 위치 하나에 대한 프로파일링 결과와 추천 fetch 계획.
+ * touchRatio는 샘플링한 호출 중 돌려준 엔티티의 해당 연관관계를 실제로 읽은 호출의 비율이다.
+ */
+@Getter
+public class FetchPlanAdvice {
+
+    private final String callSite;
+    private final String rootType;
+    private final long samples;
+    private final Map<String, Double> touchRatio;
+    private final String recommended;
+
+    public FetchPlanAdvice(String callSite, String rootType, long samples, Map<String, Double> touchRatio, String recommended) {
+        this.callSite = callSite;
+        this.rootType = rootType;
+        this.samples = samples;
+        this.touchRatio = touchRatio;
+        this.recommended = recommended;
+    }
+}
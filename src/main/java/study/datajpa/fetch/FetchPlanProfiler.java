@@ -0,0 +1,269 @@
+package study.datajpa.fetch;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import study.datajpa.monitor.TransactionalEntityManagers;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 호출 위치(리포지토리를 부른 코드의 클래스.메서드:라인)별로 어떤 연관관계를 실제로 읽는지 기록하고 fetch 계획을 추천한다.
+ *
+ * 프로파일링(datajpa.fetch-plan.profiling)이 켜져 있으면
+ *   - FetchPlan.auto()로 부른 호출만 호출 위치마다 처음 min-samples번, 그 뒤로는 sample-rate 비율로 샘플링한다.
+ *     계획을 직접 넘긴 호출은 그대로 실행한다. (돌려주는 결과가 달라지면 안 되므로)
+ *   - 샘플링된 호출은 lazy로 실행하고, 가장 바깥 경계가 끝난 뒤 돌려준 엔티티의 연관관계가 초기화되었는지 본다.
+ *     (초기화되었다 = 호출한 쪽이 읽었다) 웹 요청 안이면 요청이 끝날 때(OSIV 뷰 렌더링 포함), 아니면 트랜잭션이 끝난 뒤
+ *   - 영속성 컨텍스트가 열려 있는(트랜잭션 또는 OSIV) 경우만 샘플링한다. 아니면 lazy로 바꿨을 때 LazyInitializationException이 날 수 있다.
+ * 샘플 중 touch-threshold 이상에서 읽힌 경로만 모은 것이 추천 계획이고, FetchPlan.auto()로 부르면 그 계획으로 실행한다.
+ */
+@Component
+public class FetchPlanProfiler {
+
+    private static final int MAX_DEPTH = 2;
+    private static final int MAX_CHECKED_RESULTS = 100; //결과가 많으면 앞쪽만 본다.
+    private static final Set<String> SKIPPED_PACKAGES = Set.of(
+            "study.datajpa.repository.", "study.datajpa.monitor.", "study.datajpa.cache.");
+
+    private final EntityManagerFactory emf;
+    private final boolean profiling;
+    private final double sampleRate;
+    private final int minSamples;
+    private final double touchThreshold;
+
+    private final Map<Class<?>, List<String>> candidatePaths = new ConcurrentHashMap<>();
+    private final Map<String, CallSiteProfile> profiles = new ConcurrentHashMap<>();
+    private final AtomicLong invocations = new AtomicLong(); //요청 종료 콜백 이름
+
+    public FetchPlanProfiler(EntityManagerFactory emf,
+                             @Value("${datajpa.fetch-plan.profiling:false}") boolean profiling,
+                             @Value("${datajpa.fetch-plan.sample-rate:0.01}") double sampleRate,
+                             @Value("${datajpa.fetch-plan.min-samples:20}") int minSamples,
+                             @Value("${datajpa.fetch-plan.touch-threshold:0.5}") double touchThreshold) {
+        this.emf = emf;
+        this.profiling = profiling;
+        this.sampleRate = sampleRate;
+        this.minSamples = minSamples;
+        this.touchThreshold = touchThreshold;
+    }
+
+    /**
+     * 이번 호출에 실제로 쓸 계획을 정한다. 쿼리를 실행한 다음 결과를 Invocation.observe에 넘겨주자.
+     */
+    public Invocation begin(Class<?> rootType, FetchPlan requested) {
+        if (!requested.isAuto()) {
+            return new Invocation(requested, null);
+        }
+        String callSite = callSite();
+        CallSiteProfile profile = profiles.computeIfAbsent(rootType.getSimpleName() + " " + callSite,
+                key -> new CallSiteProfile(callSite, rootType, candidatePaths(rootType)));
+
+        if (profiling && shouldSample(profile)) {
+            return new Invocation(FetchPlan.lazy(), profile);
+        }
+        return new Invocation(profile.recommend().orElse(requested.getFallback()), null);
+    }
+
+    public List<FetchPlanAdvice> getAdvice() {
+        List<FetchPlanAdvice> advice = new ArrayList<>();
+        profiles.values().forEach(profile -> advice.add(profile.toAdvice()));
+        advice.sort(Comparator.comparing(FetchPlanAdvice::getCallSite));
+        return advice;
+    }
+
+    private boolean shouldSample(CallSiteProfile profile) {
+        if (TransactionalEntityManagers.current(emf) == null
+                || (RequestContextHolder.getRequestAttributes() == null && !TransactionSynchronizationManager.isSynchronizationActive())) {
+            return false;
+        }
+        //처음 min-samples번은 무조건 샘플링 (동시에 들어오면 조금 더 샘플링될 수 있음)
+        return profile.started.getAndIncrement() < minSamples || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    //리포지토리, 애스펙트, 프로파일러 자신을 건너뛴 첫 애플리케이션 코드
+    private static String callSite() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> isCallSite(frame.getClassName()))
+                .findFirst()
+                .map(frame -> simpleName(frame.getClassName()) + "." + frame.getMethodName() + ":" + frame.getLineNumber())
+                .orElse("unknown"));
+    }
+
+    private static boolean isCallSite(String className) {
+        if (!className.startsWith("study.datajpa.") || className.startsWith(FetchPlanProfiler.class.getName())) {
+            return false;
+        }
+        for (String skipped : SKIPPED_PACKAGES) {
+            if (className.startsWith(skipped)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    //루트 엔티티에서 MAX_DEPTH 단계까지의 연관관계 경로 (Member -> team, team.members)
+    private List<String> candidatePaths(Class<?> rootType) {
+        return candidatePaths.computeIfAbsent(rootType, type -> {
+            List<String> paths = new ArrayList<>();
+            collectPaths(emf.getMetamodel(), type, "", 1, paths);
+            return Collections.unmodifiableList(paths);
+        });
+    }
+
+    private static void collectPaths(Metamodel metamodel, Class<?> type, String prefix, int depth, List<String> paths) {
+        ManagedType<?> managedType = metamodel.managedType(type);
+        for (Attribute<?, ?> attribute : managedType.getAttributes()) {
+            if (!attribute.isAssociation()) {
+                continue;
+            }
+            String path = prefix + attribute.getName();
+            paths.add(path);
+            if (depth < MAX_DEPTH) {
+                collectPaths(metamodel, FetchPlan.targetType(attribute), path + ".", depth + 1, paths);
+            }
+        }
+    }
+
+    /**
+     * path를 따라가며 연관관계가 초기화되어 있는지 본다. 중간이 초기화되지 않았으면 거기서 멈춘다. (여기서 로딩을 일으키면 안 됨)
+     */
+    private static boolean isTouched(Object entity, String path) {
+        if (!Hibernate.isInitialized(entity)) {
+            return false;
+        }
+        String[] names = path.split("\\.");
+        Object current = entity;
+        for (int i = 0; i < names.length; i++) {
+            current = PropertyAccessorFactory.forDirectFieldAccess(Hibernate.unproxy(current)).getPropertyValue(names[i]);
+            if (current == null || !Hibernate.isInitialized(current)) {
+                return false;
+            }
+            if (current instanceof Collection && i < names.length - 1) {
+                Collection<?> collection = (Collection<?>) current;
+                if (collection.isEmpty()) {
+                    return false;
+                }
+                current = collection.iterator().next(); //컬렉션 다음 단계는 첫 원소로 판단
+            }
+        }
+        return true;
+    }
+
+    /**
+     * begin이 정한 계획과 샘플링 여부
+     */
+    public class Invocation {
+        private final FetchPlan plan;
+        private final CallSiteProfile sampledProfile;
+
+        private Invocation(FetchPlan plan, CallSiteProfile sampledProfile) {
+            this.plan = plan;
+            this.sampledProfile = sampledProfile;
+        }
+
+        public FetchPlan getPlan() {
+            return plan;
+        }
+
+        public boolean isSampled() {
+            return sampledProfile != null;
+        }
+
+        public <T> List<T> observe(List<T> results) {
+            if (sampledProfile == null || results.isEmpty()) {
+                return results;
+            }
+            List<T> checked = new ArrayList<>(results.size() > MAX_CHECKED_RESULTS ? results.subList(0, MAX_CHECKED_RESULTS) : results);
+            CallSiteProfile profile = sampledProfile;
+            //isTouched는 초기화 여부만 보므로 세션이 닫힌 뒤(준영속)에 봐도 된다.
+            Runnable record = () -> profile.record(touchedPaths(profile, checked));
+            RequestAttributes request = RequestContextHolder.getRequestAttributes();
+            if (request != null) {
+                request.registerDestructionCallback(FetchPlanProfiler.class.getName() + "." + invocations.incrementAndGet(),
+                        record, RequestAttributes.SCOPE_REQUEST);
+            } else {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        record.run();
+                    }
+                });
+            }
+            return results;
+        }
+    }
+
+    private static Set<String> touchedPaths(CallSiteProfile profile, List<?> entities) {
+        Set<String> touched = new HashSet<>();
+        for (String path : profile.paths) {
+            for (Object entity : entities) {
+                if (isTouched(entity, path)) {
+                    touched.add(path);
+                    break;
+                }
+            }
+        }
+        return touched;
+    }
+
+    private class CallSiteProfile {
+        private final String callSite;
+        private final Class<?> rootType;
+        private final List<String> paths;
+        private final AtomicLong started = new AtomicLong();
+        private final LongAdder samples = new LongAdder();
+        private final Map<String, LongAdder> touched = new ConcurrentHashMap<>();
+
+        CallSiteProfile(String callSite, Class<?> rootType, List<String> paths) {
+            this.callSite = callSite;
+            this.rootType = rootType;
+            this.paths = paths;
+            paths.forEach(path -> touched.put(path, new LongAdder()));
+        }
+
+        void record(Set<String> touchedPaths) {
+            samples.increment();
+            touchedPaths.forEach(path -> touched.get(path).increment());
+        }
+
+        Optional<FetchPlan> recommend() {
+            long sampleCount = samples.sum();
+            if (sampleCount < minSamples) {
+                return Optional.empty();
+            }
+            List<String> recommended = new ArrayList<>();
+            touched.forEach((path, count) -> {
+                if ((double) count.sum() / sampleCount >= touchThreshold) {
+                    recommended.add(path);
+                }
+            });
+            return Optional.of(FetchPlan.of(recommended));
+        }
+
+        FetchPlanAdvice toAdvice() {
+            long sampleCount = samples.sum();
+            Map<String, Double> ratio = new TreeMap<>();
+            touched.forEach((path, count) -> ratio.put(path, sampleCount == 0 ? 0 : (double) count.sum() / sampleCount));
+            return new FetchPlanAdvice(callSite, rootType.getSimpleName(), sampleCount, ratio,
+                    recommend().map(FetchPlan::toString).orElse(null));
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package study.datajpa.id;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.jdbc.AbstractReturningWork;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * insert마다 DB에서 id를 받아오지 않고, id_block에서 block-size개씩 예약해둔 범위에서 메모리로 나눠준다.
+ *   - 범위 안에서는 AtomicLong 증가만 하므로 락이 없다. 범위를 다 쓰면 한 스레드만 다음 블록을 받아온다.
+ *   - 블록은 Hibernate isolation delegate(별도 커넥션, 별도 트랜잭션)로 받아오므로 id_block 행 락이 insert 트랜잭션 동안 잡혀 있지 않다.
+ *   - 노드마다 블록이 다르므로 id는 겹치지 않는다. 블록 안에서는 연속이라 B-tree에는 거의 오른쪽 끝에 붙는다.
+ *   - 애플리케이션을 내리면 남은 블록은 버려진다. (id에 구멍이 생긴다)
+ *
+ * datajpa.id.time-ordered가 true면 시간 순서로 정렬되는(k-sortable) id를 만든다.
+ *   [밀리초(2020-01-01부터) 41비트][노드 슬롯 10비트][같은 밀리초 안 순번 12비트]
+ *   - 노드 슬롯은 id_block의 "{테이블}:node:{슬롯}" 행을 임대(owner, lease_until)해서 쓴다. 만료된 슬롯만 다시 빌려주고,
+ *     1024개가 모두 임대 중이면 시작(BlockIdGenerators.start)이 실패한다.
+ *   - 임대는 node-lease-ms / 3마다 heartbeat 스레드가 연장한다. 연장하지 못한 채 임대 기간이 지나면
+ *     id를 만들기 전에 다시 연장하고, 그 사이 다른 노드가 가져갔으면 새 슬롯을 빌린다. (만료된 슬롯으로는 id를 만들지 않는다)
+ *   - 시계가 뒤로 가도 이전 id보다 작아지지 않는다. 한 밀리초에 4096개가 넘으면 다음 밀리초 값을 미리 쓴다.
+ *
+ * 설정은 spring.jpa.properties.datajpa.id.* (Hibernate 설정)에서 읽는다.
+ */
+@Slf4j
+public class BlockIdGenerator implements IdentifierGenerator {
+
+    public static final String BLOCK_SIZE = "datajpa.id.block-size";
+    public static final String TIME_ORDERED = "datajpa.id.time-ordered";
+    public static final String NODE_LEASE_MS = "datajpa.id.node-lease-ms";
+
+    private static final long EPOCH = Instant.parse("2020-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+
+    private String segment;
+    private String seedSql;
+    private long blockSize;
+    private boolean timeOrdered;
+    private long leaseMillis;
+    private ConnectionProvider connectionProvider; //노드 슬롯 임대는 세션 없이(heartbeat) 하므로 커넥션을 직접 받는다.
+
+    private volatile Block block = Block.EMPTY;
+
+    private final String owner = UUID.randomUUID().toString();
+    private volatile Lease lease;
+    private ScheduledExecutorService heartbeat;
+    private final AtomicLong lastTime = new AtomicLong(); //(밀리초 << SEQUENCE_BITS) | 순번
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        String table = params.getProperty(PersistentIdentifierGenerator.TABLE);
+        String column = params.getProperty(PersistentIdentifierGenerator.PK);
+        Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        this.segment = table;
+        this.seedSql = IdBlocks.seedSql(table, column);
+        this.blockSize = ConfigurationHelper.getInt(BLOCK_SIZE, settings, 1000);
+        this.timeOrdered = ConfigurationHelper.getBoolean(TIME_ORDERED, settings, false);
+        this.leaseMillis = ConfigurationHelper.getInt(NODE_LEASE_MS, settings, 60_000);
+        this.connectionProvider = serviceRegistry.getService(ConnectionProvider.class);
+        if (blockSize < 1) {
+            throw new MappingException(BLOCK_SIZE + "는 1 이상이어야 합니다: " + blockSize);
+        }
+        if (leaseMillis < 3) {
+            throw new MappingException(NODE_LEASE_MS + "는 3 이상이어야 합니다: " + leaseMillis);
+        }
+    }
+
+    /**
+     * 시간 순서 모드면 노드 슬롯을 미리 빌리고 heartbeat를 시작한다. 슬롯이 없으면 예외 (애플리케이션 시작 실패)
+     */
+    public synchronized void start() {
+        if (!timeOrdered || heartbeat != null) {
+            return;
+        }
+        if (lease == null) {
+            lease = acquire();
+        }
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "id-lease-" + segment);
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::renewQuietly, leaseMillis / 3, leaseMillis / 3, TimeUnit.MILLISECONDS);
+    }
+
+    //heartbeat를 멈추고 슬롯을 돌려준다. 다음 노드가 만료를 기다리지 않고 쓸 수 있다.
+    public synchronized void stop() {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+            heartbeat = null;
+        }
+        Lease current = lease;
+        if (current != null) {
+            lease = null;
+            withConnection(connection -> {
+                IdBlocks.releaseSlot(connection, nodeSegment(), current.slot, owner);
+                return null;
+            });
+        }
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        return timeOrdered ? nextTimeOrdered(session) : nextFromBlock(session);
+    }
+
+    private long nextFromBlock(SharedSessionContractImplementor session) {
+        while (true) {
+            Block current = block;
+            long id = current.next.getAndIncrement();
+            if (id < current.end) {
+                return id;
+            }
+            synchronized (this) {
+                if (block == current) { //다른 스레드가 이미 받아왔으면 그 블록을 쓴다.
+                    long first = allocate(session, segment, seedSql, blockSize);
+                    block = new Block(first, first + blockSize);
+                }
+            }
+        }
+    }
+
+    private long nextTimeOrdered(SharedSessionContractImplementor session) {
+        long nodeSlot = nodeSlot();
+        long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        long time = lastTime.updateAndGet(last -> Math.max(now, last + 1));
+        long millis = time >>> SEQUENCE_BITS;
+        long sequence = time & ((1L << SEQUENCE_BITS) - 1);
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeSlot << SEQUENCE_BITS) | sequence;
+    }
+
+    //임대 기간 안이면 락 없이 현재 슬롯. 지났으면 (heartbeat가 밀렸으면) 여기서 연장한다.
+    private long nodeSlot() {
+        Lease current = lease;
+        if (current != null && System.nanoTime() < current.deadline) {
+            return current.slot;
+        }
+        synchronized (this) {
+            if (lease == null) {
+                lease = acquire();
+            } else if (System.nanoTime() >= lease.deadline) {
+                lease = renew(lease);
+            }
+            return lease.slot;
+        }
+    }
+
+    private void renewQuietly() {
+        try {
+            synchronized (this) {
+                if (lease != null) {
+                    lease = renew(lease);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("node slot lease renewal failed for {}", segment, e); //다음 heartbeat나 id 생성 때 다시
+        }
+    }
+
+    private Lease acquire() {
+        long start = System.nanoTime();
+        int slot = withConnection(connection -> IdBlocks.leaseSlot(connection, nodeSegment(), 1 << NODE_BITS, owner, leaseMillis));
+        log.info("leased node slot {} for {}", slot, segment);
+        return new Lease(slot, deadline(start));
+    }
+
+    private Lease renew(Lease current) {
+        long start = System.nanoTime();
+        if (withConnection(connection -> IdBlocks.renewSlot(connection, nodeSegment(), current.slot, owner, leaseMillis))) {
+            return new Lease(current.slot, deadline(start));
+        }
+        log.warn("node slot {} for {} was leased by another node, leasing a new one", current.slot, segment);
+        return acquire();
+    }
+
+    //DB는 SQL을 실행한 시각부터 leaseMillis를 주므로, SQL을 보내기 전 시각부터 세면 DB의 만료보다 먼저 끝난다. (시계 속도 차이만큼 여유를 더 둔다)
+    private long deadline(long start) {
+        long margin = Math.min(1000, leaseMillis / 10);
+        return start + TimeUnit.MILLISECONDS.toNanos(leaseMillis - margin);
+    }
+
+    private String nodeSegment() {
+        return segment + ":node";
+    }
+
+    private <T> T withConnection(LeaseWork<T> work) {
+        try {
+            Connection connection = connectionProvider.getConnection();
+            try {
+                return work.execute(connection);
+            } finally {
+                connectionProvider.closeConnection(connection);
+            }
+        } catch (SQLException e) {
+            throw new HibernateException("node slot lease failed for " + segment, e);
+        } catch (IllegalStateException e) {
+            throw new HibernateException(e.getMessage(), e);
+        }
+    }
+
+    private static long allocate(SharedSessionContractImplementor session, String segment, String seedSql, long size) {
+        return session.getTransactionCoordinator().createIsolationDelegate().delegateWork(
+                new AbstractReturningWork<Long>() {
+                    @Override
+                    public Long execute(Connection connection) throws SQLException {
+                        return IdBlocks.allocate(connection, segment, seedSql, size);
+                    }
+                }, true);
+    }
+
+    private interface LeaseWork<T> {
+        T execute(Connection connection) throws SQLException;
+    }
+
+    //deadline(System.nanoTime 기준)까지 slot을 쓸 수 있다.
+    private static class Lease {
+        private final int slot;
+        private final long deadline;
+
+        Lease(int slot, long deadline) {
+            this.slot = slot;
+            this.deadline = deadline;
+        }
+    }
+
+    //[next, end) 범위. next가 end를 넘으면 다 쓴 것
+    private static class Block {
+        private static final Block EMPTY = new Block(0, 0);
+
+        private final AtomicLong next;
+        private final long end;
+
+        Block(long first, long end) {
+            this.next = new AtomicLong(first);
+            this.end = end;
+        }
+    }
+}
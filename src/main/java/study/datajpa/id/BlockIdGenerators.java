@@ -0,0 +1,40 @@
+package study.datajpa.id;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hibernate가 만든 BlockIdGenerator의 시작 / 종료. (생성기는 스프링 빈이 아니므로 엔티티 persister에서 찾는다)
+ *   - 시작: 스키마가 만들어진 뒤 노드 슬롯을 미리 빌린다. 빌릴 슬롯이 없으면 애플리케이션이 뜨지 않는다.
+ *   - 종료: heartbeat를 멈추고 슬롯을 돌려준다.
+ */
+@Component
+public class BlockIdGenerators {
+
+    private final List<BlockIdGenerator> generators = new ArrayList<>();
+
+    public BlockIdGenerators(EntityManagerFactory emf) {
+        for (EntityPersister persister : emf.unwrap(SessionFactoryImplementor.class).getMetamodel().entityPersisters().values()) {
+            if (persister.getIdentifierGenerator() instanceof BlockIdGenerator) {
+                generators.add((BlockIdGenerator) persister.getIdentifierGenerator());
+            }
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        generators.forEach(BlockIdGenerator::start);
+    }
+
+    @PreDestroy
+    public void stop() {
+        generators.forEach(BlockIdGenerator::stop);
+    }
+}
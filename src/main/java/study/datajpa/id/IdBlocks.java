@@ -0,0 +1,194 @@
+package study.datajpa.id;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * id_block 테이블에서 id 범위를 예약한다. 노드가 여러 개여도 segment 행 락으로 겹치지 않는 범위를 받는다.
+ * 커넥션이 auto-commit이면 여기서 트랜잭션을 열고 닫고, 아니면 호출한 쪽 트랜잭션에 참여한다.
+ * (행 락이 호출한 쪽 트랜잭션 끝까지 잡혀 있으므로 BlockIdGenerator는 별도 커넥션에서 부른다)
+ */
+public abstract class IdBlocks {
+
+    private static final String SELECT_SQL = "select next_value from id_block where segment = ? for update";
+    private static final String INSERT_SQL = "insert into id_block (segment, next_value) values (?, ?)";
+    private static final String UPDATE_SQL = "update id_block set next_value = ? where segment = ?";
+
+    //노드 슬롯 임대. 만료 시각은 노드마다 시계가 다를 수 있으므로 DB 시각 기준
+    private static final String LEASES_SQL = "select segment, lease_until > localtimestamp from id_block where segment like ?";
+    private static final String INSERT_LEASE_SQL = "insert into id_block (segment, next_value, owner, lease_until) values (?, 0, ?, dateadd(millisecond, ?, localtimestamp))";
+    private static final String UPDATE_LEASE_SQL = "update id_block set owner = ?, lease_until = dateadd(millisecond, ?, localtimestamp) where segment = ?";
+    private static final String RENEW_LEASE_SQL = "update id_block set lease_until = dateadd(millisecond, ?, localtimestamp) where segment = ? and owner = ?";
+    private static final String RELEASE_LEASE_SQL = "update id_block set owner = null, lease_until = null where segment = ? and owner = ?";
+
+    /**
+     * size개의 id를 예약하고 첫 id를 돌려준다. (first ~ first + size - 1)
+     * segment 행이 없으면 seedSql(예: select max(member_id) + 1 ...)의 결과나 1부터 시작한다.
+     */
+    public static long allocate(Connection connection, String segment, String seedSql, long size) throws SQLException {
+        return inTransaction(connection, () -> {
+            long first = lockNextValue(connection, segment, seedSql);
+            update(connection, segment, first + size);
+            return first;
+        });
+    }
+
+    /**
+     * JDBC로 id를 직접 넣은 뒤 다음 블록이 그 id들 다음부터 나가게 한다. (이미 예약된 블록은 그대로)
+     */
+    public static void advancePast(Connection connection, String segment, String seedSql) throws SQLException {
+        inTransaction(connection, () -> {
+            long next = lockNextValue(connection, segment, seedSql);
+            long seed = seed(connection, seedSql);
+            if (seed > next) {
+                update(connection, segment, seed);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 0 ~ slots - 1 중 임대 중이 아닌(없거나 만료된) 슬롯을 owner에게 leaseMillis 동안 빌려준다.
+     *   - segment 행(다음에 살펴볼 슬롯 위치)을 잠그고 고르므로 노드 여러 개가 동시에 시작해도 같은 슬롯을 받지 않는다.
+     *   - 모든 슬롯이 임대 중이면 IllegalStateException
+     */
+    public static int leaseSlot(Connection connection, String segment, int slots, String owner, long leaseMillis) throws SQLException {
+        return inTransaction(connection, () -> {
+            long cursor = lockNextValue(connection, segment, null);
+            Set<Integer> existing = new HashSet<>();
+            Set<Integer> leased = new HashSet<>();
+            try (PreparedStatement ps = connection.prepareStatement(LEASES_SQL)) {
+                ps.setString(1, segment + ":%");
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int slot = Integer.parseInt(rs.getString(1).substring(segment.length() + 1));
+                        existing.add(slot);
+                        if (rs.getBoolean(2)) {
+                            leased.add(slot);
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < slots; i++) {
+                int slot = (int) ((cursor + i) % slots); //최근에 쓴 슬롯은 되도록 늦게 다시 쓴다.
+                if (leased.contains(slot)) {
+                    continue;
+                }
+                try (PreparedStatement ps = connection.prepareStatement(existing.contains(slot) ? UPDATE_LEASE_SQL : INSERT_LEASE_SQL)) {
+                    if (existing.contains(slot)) {
+                        ps.setString(1, owner);
+                        ps.setLong(2, leaseMillis);
+                        ps.setString(3, slotSegment(segment, slot));
+                    } else {
+                        ps.setString(1, slotSegment(segment, slot));
+                        ps.setString(2, owner);
+                        ps.setLong(3, leaseMillis);
+                    }
+                    ps.executeUpdate();
+                }
+                update(connection, segment, slot + 1);
+                return slot;
+            }
+            throw new IllegalStateException(segment + "의 슬롯 " + slots + "개가 모두 임대 중입니다.");
+        });
+    }
+
+    //아직 owner가 임대 중이면 leaseMillis 연장하고 true. 다른 노드가 가져갔으면(만료 후 재임대) false
+    public static boolean renewSlot(Connection connection, String segment, int slot, String owner, long leaseMillis) throws SQLException {
+        return inTransaction(connection, () -> {
+            try (PreparedStatement ps = connection.prepareStatement(RENEW_LEASE_SQL)) {
+                ps.setLong(1, leaseMillis);
+                ps.setString(2, slotSegment(segment, slot));
+                ps.setString(3, owner);
+                return ps.executeUpdate() == 1;
+            }
+        });
+    }
+
+    public static void releaseSlot(Connection connection, String segment, int slot, String owner) throws SQLException {
+        inTransaction(connection, () -> {
+            try (PreparedStatement ps = connection.prepareStatement(RELEASE_LEASE_SQL)) {
+                ps.setString(1, slotSegment(segment, slot));
+                ps.setString(2, owner);
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    private static String slotSegment(String segment, int slot) {
+        return segment + ":" + slot;
+    }
+
+    //segment 행이 없을 때 테이블에 이미 있는 id 다음부터 시작하게 하는 쿼리
+    public static String seedSql(String table, String idColumn) {
+        return "select coalesce(max(" + idColumn + "), 0) + 1 from " + table;
+    }
+
+    private static long lockNextValue(Connection connection, String segment, String seedSql) throws SQLException {
+        Long next = selectForUpdate(connection, segment);
+        if (next != null) {
+            return next;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+            ps.setString(1, segment);
+            ps.setLong(2, seed(connection, seedSql));
+            ps.executeUpdate();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            //다른 노드가 먼저 만들었다.
+        }
+        return selectForUpdate(connection, segment);
+    }
+
+    private static Long selectForUpdate(Connection connection, String segment) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(SELECT_SQL)) {
+            ps.setString(1, segment);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        }
+    }
+
+    private static void update(Connection connection, String segment, long nextValue) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(UPDATE_SQL)) {
+            ps.setLong(1, nextValue);
+            ps.setString(2, segment);
+            ps.executeUpdate();
+        }
+    }
+
+    private static long seed(Connection connection, String seedSql) throws SQLException {
+        if (seedSql == null) {
+            return 1;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(seedSql);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? Math.max(rs.getLong(1), 1) : 1;
+        }
+    }
+
+    private static <T> T inTransaction(Connection connection, SqlWork<T> work) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            return work.execute();
+        }
+        connection.setAutoCommit(false);
+        try {
+            T result = work.execute();
+            connection.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private interface SqlWork<T> {
+        T execute() throws SQLException;
+    }
+}
@@ -0,0 +1,41 @@
+package study.datajpa.monitor;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * 락을 잡는 SQL의 실행 시간과 실패를 ContentionProfiler에 넘긴다. (p6spy-spring-boot-starter가 자동으로 붙여줌)
+ * 조회 SQL이 실패한 경우도 락 타임아웃 / 데드락일 수 있으므로 넘긴다.
+ */
+@Component
+public class ContentionListener extends SimpleJdbcEventListener {
+
+    private static final Pattern FOR_UPDATE = Pattern.compile("\\bfor\\s+update\\b");
+
+    private final ContentionProfiler profiler;
+
+    public ContentionListener(ContentionProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        String sql = statementInformation.getSql();
+        if (sql != null && isLocking(sql)) {
+            profiler.recordLockingStatement(timeElapsedNanos, e);
+        } else if (e != null) {
+            profiler.recordFailure(e);
+        }
+    }
+
+    static boolean isLocking(String sql) {
+        String lower = sql.trim().toLowerCase(Locale.ROOT);
+        return lower.startsWith("insert") || lower.startsWith("update") || lower.startsWith("delete") || lower.startsWith("merge")
+                || FOR_UPDATE.matcher(lower).find();
+    }
+}
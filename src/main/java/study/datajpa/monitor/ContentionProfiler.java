@@ -0,0 +1,166 @@
+package study.datajpa.monitor;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.hibernate.StaleStateException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.OptimisticLockException;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 리포지토리 메서드별로 락 대기, 락 타임아웃, 데드락, 낙관적 락 실패를 센다.
+ *   - 락 대기: 락을 잡는 SQL(select ... for update, insert/update/delete/merge)의 실행 시간. DB가 대기 시간을 따로 알려주지 않으므로
+ *     실행 시간이 lock-wait-threshold를 넘으면 락을 기다린 것으로 본다. (ContentionListener가 JDBC 레벨에서 넘겨준다)
+ *   - 락 타임아웃 / 데드락: SQL이 실패할 때의 에러 코드, SQLState로 구분한다.
+ *   - 낙관적 락 실패: 리포지토리 메서드에서 던져진 OptimisticLockingFailureException 중 SQL 에러가 아닌 것 (Hibernate가 update 건수로 판단한 것)
+ * 리포지토리 메서드 밖에서 실행된 SQL(커밋 때 flush)은 "(flush/commit)"으로 모은다.
+ */
+@Aspect
+@Component
+public class ContentionProfiler {
+
+    static final String OUTSIDE_REPOSITORY = "(flush/commit)";
+
+    private final long lockWaitThresholdNanos;
+    private final Map<String, MethodContention> methods = new ConcurrentHashMap<>();
+
+    public ContentionProfiler(@Value("${datajpa.monitor.contention.lock-wait-threshold-ms:10}") long lockWaitThresholdMillis) {
+        this.lockWaitThresholdNanos = TimeUnit.MILLISECONDS.toNanos(lockWaitThresholdMillis);
+    }
+
+    @Around("study.datajpa.monitor.RepositoryPointcuts.repositoryMethods()")
+    public Object profile(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = RepositoryPointcuts.describe(joinPoint);
+        try {
+            return joinPoint.proceed();
+        } catch (RuntimeException e) {
+            if (isOptimisticFailure(e)) {
+                contention(method).optimisticFailures.increment();
+            }
+            throw e;
+        } finally {
+            contention(method).calls.increment();
+        }
+    }
+
+    //ContentionListener가 락을 잡는 SQL을 실행할 때마다 부른다.
+    void recordLockingStatement(long elapsedNanos, SQLException e) {
+        MethodContention contention = contention(currentMethod());
+        contention.lockingStatements.increment();
+        if (elapsedNanos >= lockWaitThresholdNanos) {
+            contention.lockWaits.increment();
+            contention.lockWaitNanos.add(elapsedNanos);
+            contention.lockWaitNanosMax.accumulate(elapsedNanos);
+        }
+        if (e != null) {
+            recordFailure(e);
+        }
+    }
+
+    void recordFailure(SQLException e) {
+        switch (classify(e)) {
+            case DEADLOCK:
+                contention(currentMethod()).deadlocks.increment();
+                break;
+            case LOCK_TIMEOUT:
+                contention(currentMethod()).lockTimeouts.increment();
+                break;
+            case WRITE_CONFLICT:
+                contention(currentMethod()).optimisticFailures.increment();
+                break;
+            default:
+        }
+    }
+
+    public List<ContentionStats> getStats() {
+        List<ContentionStats> stats = new ArrayList<>();
+        methods.forEach((method, contention) -> stats.add(contention.toStats(method)));
+        stats.sort(Comparator.comparingDouble(ContentionStats::getLockWaitMillisTotal).reversed()
+                .thenComparing(ContentionStats::getMethod));
+        return stats;
+    }
+
+    public void reset() {
+        methods.clear();
+    }
+
+    private MethodContention contention(String method) {
+        return methods.computeIfAbsent(method, m -> new MethodContention());
+    }
+
+    private static String currentMethod() {
+        String method = RepositoryInvocationContext.current();
+        return method == null ? OUTSIDE_REPOSITORY : method;
+    }
+
+    enum Failure { DEADLOCK, LOCK_TIMEOUT, WRITE_CONFLICT, OTHER }
+
+    /**
+     * H2, PostgreSQL, MySQL의 에러 코드 / SQLState
+     *   - 데드락: H2 40001, PostgreSQL 40P01, MySQL 1213
+     *   - 락 타임아웃: H2 50200, PostgreSQL 55P03, MySQL 1205
+     *   - 쓰기 충돌: H2 90131 (MVCC에서 다른 트랜잭션이 먼저 같은 행을 바꿈. 먼저 쓴 쪽이 이기는 낙관적 실패로 센다)
+     */
+    static Failure classify(SQLException e) {
+        for (SQLException current = e; current != null; current = current.getNextException()) {
+            int code = current.getErrorCode();
+            String state = current.getSQLState();
+            if (code == 40001 || code == 1213 || "40P01".equals(state) || current instanceof SQLTransactionRollbackException) {
+                return Failure.DEADLOCK;
+            }
+            if (code == 50200 || code == 1205 || "55P03".equals(state) || current instanceof SQLTimeoutException) {
+                return Failure.LOCK_TIMEOUT;
+            }
+            if (code == 90131) {
+                return Failure.WRITE_CONFLICT;
+            }
+        }
+        return Failure.OTHER;
+    }
+
+    //SQL 에러에서 온 것은 ContentionListener가 이미 셌다.
+    private static boolean isOptimisticFailure(Throwable e) {
+        boolean optimistic = false;
+        for (Throwable current = e; current != null; current = current.getCause()) {
+            if (current instanceof SQLException) {
+                return false;
+            }
+            if (current instanceof OptimisticLockingFailureException || current instanceof OptimisticLockException
+                    || current instanceof StaleStateException) {
+                optimistic = true;
+            }
+        }
+        return optimistic;
+    }
+
+    private static class MethodContention {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder lockingStatements = new LongAdder();
+        private final LongAdder lockWaits = new LongAdder();
+        private final LongAdder lockWaitNanos = new LongAdder();
+        private final LongAccumulator lockWaitNanosMax = new LongAccumulator(Math::max, 0);
+        private final LongAdder lockTimeouts = new LongAdder();
+        private final LongAdder deadlocks = new LongAdder();
+        private final LongAdder optimisticFailures = new LongAdder();
+
+        ContentionStats toStats(String method) {
+            return new ContentionStats(method, calls.sum(), lockingStatements.sum(), lockWaits.sum(),
+                    lockWaitNanos.sum() / 1e6, lockWaitNanosMax.get() / 1e6,
+                    lockTimeouts.sum(), deadlocks.sum(), optimisticFailures.sum());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package study.datajpa.monitor;
+
+import lombok.Getter;
+
+/**
+ * 리포지토리 메서드 하나의 경합 통계. method가 "(flush/commit)"이면 리포지토리 밖(커밋 때 flush 등)에서 실행된 SQL
+ */
+@Getter
+public class ContentionStats {
+
+    private final String method;
+    private final long calls;
+    private final long lockingStatements; //select ... for update, insert/update/delete/merge
+    private final long lockWaits; //locking statement 중 lock-wait-threshold를 넘은 것
+    private final double lockWaitMillisTotal;
+    private final double lockWaitMillisMax;
+    private final long lockTimeouts;
+    private final long deadlocks;
+    private final long optimisticFailures;
+
+    public ContentionStats(String method, long calls, long lockingStatements, long lockWaits, double lockWaitMillisTotal,
+                           double lockWaitMillisMax, long lockTimeouts, long deadlocks, long optimisticFailures) {
+        this.method = method;
+        this.calls = calls;
+        this.lockingStatements = lockingStatements;
+        this.lockWaits = lockWaits;
+        this.lockWaitMillisTotal = lockWaitMillisTotal;
+        this.lockWaitMillisMax = lockWaitMillisMax;
+        this.lockTimeouts = lockTimeouts;
+        this.deadlocks = deadlocks;
+        this.optimisticFailures = optimisticFailures;
+    }
+}
@@ -0,0 +1,107 @@
+package study.datajpa.monitor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.hibernate.Session;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 긴 트랜잭션에서 영속성 컨텍스트가 한없이 커지는 것을 막는 가드.
+ * 리포지토리 메서드가 끝날 때마다 트랜잭션에 묶인 EntityManager의 관리 엔티티 수를 보고
+ *   - warn-threshold를 넘으면 경고를 남기고 (트랜잭션마다 threshold 배수를 넘을 때 한 번씩)
+ *   - auto-clear가 켜져 있고 clear-threshold를 넘으면 flush + clear 해서 dirty checking 비용을 초기화한다.
+ * clear하면 호출한 쪽이 들고 있던 엔티티가 모두 준영속이 되므로 auto-clear는 배치처럼 엔티티를 다시 쓰지 않는 곳에서만 켜자.
+ */
+@Slf4j
+@Aspect
+@Component
+public class PersistenceContextGuard {
+
+    private final ObjectProvider<EntityManagerFactory> emf; //애스펙트는 일찍 만들어지므로 지연 조회
+    private final int warnThreshold;
+    private final int clearThreshold;
+    private final boolean autoClear;
+
+    private final AtomicInteger lastObserved = new AtomicInteger();
+    private final LongAccumulator maxObserved = new LongAccumulator(Math::max, 0);
+    private final LongAdder warnings = new LongAdder();
+    private final LongAdder autoClears = new LongAdder();
+
+    //같은 EntityManager에 대해 경고를 반복하지 않기 위해 마지막으로 경고한 크기를 기억
+    private final ThreadLocal<WarnState> warnState = new ThreadLocal<>();
+
+    public PersistenceContextGuard(ObjectProvider<EntityManagerFactory> emf,
+                                   @Value("${datajpa.monitor.persistence-context.warn-threshold:10000}") int warnThreshold,
+                                   @Value("${datajpa.monitor.persistence-context.clear-threshold:50000}") int clearThreshold,
+                                   @Value("${datajpa.monitor.persistence-context.auto-clear:false}") boolean autoClear) {
+        this.emf = emf;
+        this.warnThreshold = warnThreshold;
+        this.clearThreshold = clearThreshold;
+        this.autoClear = autoClear;
+    }
+
+    @Around("study.datajpa.monitor.RepositoryPointcuts.repositoryMethods()")
+    public Object guard(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object result = joinPoint.proceed();
+        check(joinPoint);
+        return result;
+    }
+
+    private void check(ProceedingJoinPoint joinPoint) {
+        EntityManagerFactory factory = emf.getIfAvailable();
+        EntityManager em = factory == null ? null : TransactionalEntityManagers.current(factory);
+        if (em == null) {
+            return;
+        }
+        Session session = em.unwrap(Session.class);
+        int size = session.getStatistics().getEntityCount();
+        lastObserved.set(size);
+        maxObserved.accumulate(size);
+
+        if (autoClear && size >= clearThreshold && em.isJoinedToTransaction()) {
+            em.flush();
+            em.clear();
+            autoClears.increment();
+            warnState.remove();
+            log.warn("persistence context flushed and cleared: {} managed entities after {}", size, RepositoryPointcuts.describe(joinPoint));
+            return;
+        }
+
+        if (size >= warnThreshold) {
+            WarnState state = warnState.get();
+            if (state == null || state.session != session) {
+                state = new WarnState(session);
+                warnState.set(state);
+            }
+            if (size >= state.nextWarnAt) {
+                state.nextWarnAt = (size / warnThreshold + 1) * warnThreshold;
+                warnings.increment();
+                log.warn("persistence context is large: {} managed entities after {}", size, RepositoryPointcuts.describe(joinPoint));
+            }
+        }
+    }
+
+    public PersistenceContextStats getStats() {
+        return new PersistenceContextStats(lastObserved.get(), maxObserved.intValue(), warnings.sum(), autoClears.sum(),
+                warnThreshold, clearThreshold, autoClear);
+    }
+
+    private static class WarnState {
+        private final Session session;
+        private int nextWarnAt;
+
+        WarnState(Session session) {
+            this.session = session;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package study.datajpa.monitor;
+
+import lombok.Getter;
+
+@Getter
+public class PersistenceContextStats {
+
+    private final int lastObserved;
+    private final int maxObserved;
+    private final long warnings;
+    private final long autoClears;
+    private final int warnThreshold;
+    private final int clearThreshold;
+    private final boolean autoClear;
+
+    public PersistenceContextStats(int lastObserved, int maxObserved, long warnings, long autoClears,
+                                   int warnThreshold, int clearThreshold, boolean autoClear) {
+        this.lastObserved = lastObserved;
+        this.maxObserved = maxObserved;
+        this.warnings = warnings;
+        this.autoClears = autoClears;
+        this.warnThreshold = warnThreshold;
+        this.clearThreshold = clearThreshold;
+        this.autoClear = autoClear;
+    }
+}
@@ -0,0 +1,24 @@
+package study.datajpa.monitor;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RepositoryInvocationAspect {
+
+    @Around("study.datajpa.monitor.RepositoryPointcuts.repositoryMethods()")
+    public Object trace(ProceedingJoinPoint joinPoint) throws Throwable {
+        String previous = RepositoryInvocationContext.enter(RepositoryPointcuts.describe(joinPoint));
+        try {
+            return joinPoint.proceed();
+        } finally {
+            RepositoryInvocationContext.restore(previous);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package study.datajpa.monitor;
+
+/**
+ * 현재 스레드에서 실행 중인 리포지토리 메서드 이름.
+ * JDBC 레벨(p6spy)에서는 어느 리포지토리 메서드가 쿼리를 날렸는지 알 수 없으므로 여기서 꺼내 쓴다.
+ */
+public abstract class RepositoryInvocationContext {
+
+    private static final ThreadLocal<String> current = new ThreadLocal<>();
+
+    public static String current() {
+        return current.get();
+    }
+
+    //리포지토리 안에서 다른 리포지토리를 호출해도 바깥쪽 메서드 이름을 유지한다. 이전 값을 돌려주니 finally에서 restore 해주자.
+    static String enter(String methodName) {
+        String previous = current.get();
+        if (previous == null) {
+            current.set(methodName);
+        }
+        return previous;
+    }
+
+    static void restore(String previous) {
+        if (previous == null) {
+            current.remove();
+        } else {
+            current.set(previous);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package study.datajpa.monitor;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.util.ClassUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 리포지토리 메서드를 가리키는 공통 포인트컷.
+ *   - Spring Data 리포지토리(MemberRepository 등)는 JDK 프록시라 Repository 하위 타입으로 잡고
+ *   - 순수 JPA 리포지토리(MemberJpaRepository 등)는 @Repository 클래스로 잡는다.
+ */
+@Aspect
+public class RepositoryPointcuts {
+
+    private static final String BASE_PACKAGE = "study.datajpa.";
+    private static final Map<Class<?>, String> typeNames = new ConcurrentHashMap<>();
+
+    @Pointcut("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public void springDataRepository() {}
+
+    @Pointcut("within(study.datajpa.repository..*) && @within(org.springframework.stereotype.Repository)")
+    public void jpaRepository() {}
+
+    @Pointcut("springDataRepository() || jpaRepository()")
+    public void repositoryMethods() {}
+
+    /**
+     * "MemberRepository.findByUsername" 형태의 이름.
+     * save처럼 CrudRepository에 선언된 메서드도 실제 호출한 리포지토리 이름으로 보여주기 위해 프록시 인터페이스를 본다.
+     */
+    public static String describe(JoinPoint joinPoint) {
+        Object proxy = joinPoint.getThis() != null ? joinPoint.getThis() : joinPoint.getTarget();
+        String typeName = typeNames.computeIfAbsent(proxy.getClass(), proxyClass -> resolveTypeName(proxyClass, joinPoint.getTarget()));
+        return typeName + "." + joinPoint.getSignature().getName();
+    }
+
+    private static String resolveTypeName(Class<?> proxyClass, Object target) {
+        for (Class<?> type : ClassUtils.getAllInterfacesForClassAsSet(proxyClass)) {
+            if (type.getName().startsWith(BASE_PACKAGE)) {
+                return type.getSimpleName();
+            }
+        }
+        return ClassUtils.getUserClass(target).getSimpleName();
+    }
+}
@@ -0,0 +1,47 @@
+package study.datajpa.monitor;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+
+@Getter
+@ToString
+public class SlowQueryEntry {
+
+    private final long sequence;
+    private final Instant timestamp;
+    private final String repositoryMethod; //리포지토리 밖에서 실행된 쿼리면 null
+    private final String sql; //바인딩 파라미터가 채워진 SQL
+    private final long rowCount;
+    private final long executionMillis;
+    private final long hydrationMillis; //ResultSet을 다 읽고 닫을 때까지 걸린 시간 (엔티티 하이드레이션 포함)
+    private final int persistenceContextSize; //트랜잭션 밖이면 -1
+    private final String error; //실패한 실행이면 SQLException 메시지, 성공이면 null
+
+    public SlowQueryEntry(long sequence, Instant timestamp, String repositoryMethod, String sql, long rowCount,
+                          long executionMillis, long hydrationMillis, int persistenceContextSize) {
+        this(sequence, timestamp, repositoryMethod, sql, rowCount, executionMillis, hydrationMillis, persistenceContextSize, null);
+    }
+
+    public SlowQueryEntry(long sequence, Instant timestamp, String repositoryMethod, String sql, long rowCount,
+                          long executionMillis, long hydrationMillis, int persistenceContextSize, String error) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.repositoryMethod = repositoryMethod;
+        this.sql = sql;
+        this.rowCount = rowCount;
+        this.executionMillis = executionMillis;
+        this.hydrationMillis = hydrationMillis;
+        this.persistenceContextSize = persistenceContextSize;
+        this.error = error;
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    public long getTotalMillis() {
+        return executionMillis + hydrationMillis;
+    }
+}
@@ -0,0 +1,126 @@
+package study.datajpa.monitor;
+
+import com.p6spy.engine.common.PreparedStatementInformation;
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * p6spy 이벤트로 임계치를 넘는 쿼리만 SlowQueryRingBuffer에 남긴다.
+ *   - p6spy-spring-boot-starter가 JdbcEventListener 빈을 자동으로 등록해준다.
+ *   - 조회 쿼리는 실행 시간 + ResultSet을 닫을 때까지의 시간(하이드레이션)을 합쳐서 판단한다.
+ *   - 실패한 실행(SQLException)은 임계치와 상관없이 오류 메시지와 함께 남긴다.
+ *   - 바인딩 값이 채워진 SQL, 영속성 컨텍스트 크기는 남길 때만 계산한다.
+ */
+@Component
+public class SlowQueryListener extends JdbcEventListener {
+
+    private final SlowQueryRingBuffer buffer;
+    private final long thresholdNanos;
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory; //DataSource보다 늦게 만들어지므로 지연 조회
+
+    //스레드당 열려있는 ResultSet 하나만 추적한다. (Hibernate는 한 번에 하나씩 읽고 닫는다)
+    private final ThreadLocal<PendingQuery> pending = new ThreadLocal<>();
+
+    public SlowQueryListener(@Value("${datajpa.monitor.slow-query.threshold-ms:200}") long thresholdMillis,
+                             @Value("${datajpa.monitor.slow-query.capacity:1024}") int capacity,
+                             ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        this.buffer = new SlowQueryRingBuffer(capacity);
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public SlowQueryRingBuffer getBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public void onAfterExecuteQuery(PreparedStatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        if (e != null) { //ResultSet이 없으므로 바로 남긴다.
+            record(statementInformation, 0, timeElapsedNanos, 0, e);
+            return;
+        }
+        pending.set(new PendingQuery(statementInformation, timeElapsedNanos, System.nanoTime()));
+    }
+
+    @Override
+    public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos, boolean hasNext, SQLException e) {
+        PendingQuery query = pending.get();
+        if (hasNext && query != null && query.statement == resultSetInformation.getStatementInformation()) {
+            query.rowCount++;
+        }
+    }
+
+    @Override
+    public void onAfterResultSetClose(ResultSetInformation resultSetInformation, SQLException e) {
+        PendingQuery query = pending.get();
+        if (query == null || query.statement != resultSetInformation.getStatementInformation()) {
+            return;
+        }
+        pending.remove();
+        long hydrationNanos = System.nanoTime() - query.executedAt;
+        if (query.executionNanos + hydrationNanos >= thresholdNanos) {
+            record(query.statement, query.rowCount, query.executionNanos, hydrationNanos, null);
+        }
+    }
+
+    @Override
+    public void onAfterExecuteUpdate(PreparedStatementInformation statementInformation, long timeElapsedNanos, int rowCount, SQLException e) {
+        if (e != null || timeElapsedNanos >= thresholdNanos) {
+            record(statementInformation, e != null ? 0 : rowCount, timeElapsedNanos, 0, e);
+        }
+    }
+
+    @Override
+    public void onAfterExecuteBatch(StatementInformation statementInformation, long timeElapsedNanos, int[] updateCounts, SQLException e) {
+        if (e != null || timeElapsedNanos >= thresholdNanos) {
+            long rowCount = 0;
+            if (updateCounts != null) {
+                for (int count : updateCounts) {
+                    rowCount += Math.max(count, 0);
+                }
+            }
+            record(statementInformation, rowCount, timeElapsedNanos, 0, e);
+        }
+    }
+
+    private void record(StatementInformation statement, long rowCount, long executionNanos, long hydrationNanos, SQLException e) {
+        buffer.offer(new SlowQueryEntry(
+                buffer.nextSequence(),
+                Instant.now(),
+                RepositoryInvocationContext.current(),
+                statement.getSqlWithValues(),
+                rowCount,
+                TimeUnit.NANOSECONDS.toMillis(executionNanos),
+                TimeUnit.NANOSECONDS.toMillis(hydrationNanos),
+                persistenceContextSize(),
+                e == null ? null : e.getMessage()));
+    }
+
+    //트랜잭션(또는 OSIV)에 묶인 EntityManager가 있을 때만 본다. 여기서 새로 만들면 안 된다.
+    private int persistenceContextSize() {
+        EntityManagerFactory emf = entityManagerFactory.getIfAvailable();
+        return emf == null ? -1 : TransactionalEntityManagers.managedEntityCount(emf);
+    }
+
+    private static class PendingQuery {
+        private final StatementInformation statement;
+        private final long executionNanos;
+        private final long executedAt;
+        private long rowCount;
+
+        PendingQuery(StatementInformation statement, long executionNanos, long executedAt) {
+            this.statement = statement;
+            this.executionNanos = executionNanos;
+            this.executedAt = executedAt;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package study.datajpa.monitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 고정 크기 링 버퍼. 꽉 차면 가장 오래된 항목을 덮어쓴다.
+ * 쓰는 쪽은 CAS(getAndIncrement) 한 번과 배열 set 한 번뿐이라 락을 잡거나 대기하지 않는다.
+ */
+public class SlowQueryRingBuffer {
+
+    private final AtomicReferenceArray<SlowQueryEntry> slots;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public SlowQueryRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    public long nextSequence() {
+        return sequence.getAndIncrement();
+    }
+
+    public void offer(SlowQueryEntry entry) {
+        slots.set(indexOf(entry.getSequence()), entry);
+    }
+
+    /**
+     * 오래된 순서로 정렬된 복사본. 읽는 동안 덮어써진 칸은 sequence가 맞지 않으므로 건너뛴다.
+     */
+    public List<SlowQueryEntry> snapshot() {
+        long end = sequence.get();
+        long start = Math.max(0, end - slots.length());
+        List<SlowQueryEntry> result = new ArrayList<>((int) (end - start));
+        for (long seq = start; seq < end; seq++) {
+            SlowQueryEntry entry = slots.get(indexOf(seq));
+            if (entry != null && entry.getSequence() == seq) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    private int indexOf(long seq) {
+        return (int) (seq % slots.length());
+    }
+}
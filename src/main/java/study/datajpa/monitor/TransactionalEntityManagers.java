@@ -0,0 +1,32 @@
+package study.datajpa.monitor;
+
+import org.hibernate.Session;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 현재 스레드의 트랜잭션(또는 OSIV)에 묶여있는 EntityManager를 꺼낸다.
+ * 공유 EntityManager 프록시와 달리 묶인 게 없으면 새로 만들지 않고 null을 돌려준다.
+ */
+public abstract class TransactionalEntityManagers {
+
+    public static EntityManager current(EntityManagerFactory emf) {
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(emf);
+        if (holder == null || !holder.getEntityManager().isOpen()) {
+            return null;
+        }
+        return holder.getEntityManager();
+    }
+
+    //영속성 컨텍스트가 관리 중인 엔티티 수. 묶인 EntityManager가 없으면 -1
+    public static int managedEntityCount(EntityManagerFactory emf) {
+        EntityManager em = current(emf);
+        if (em == null) {
+            return -1;
+        }
+        return em.unwrap(Session.class).getStatistics().getEntityCount();
+    }
+}
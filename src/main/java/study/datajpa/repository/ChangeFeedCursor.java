@@ -0,0 +1,55 @@
+package study.datajpa.repository;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 변경 피드의 재개 지점. (lastModifiedDate, id) 키셋이라 같은 시각에 바뀐 행이 여러 개여도 빠짐없이 이어서 읽을 수 있다.
+ * encode()한 문자열을 저장해두었다가 decode()해서 다음 동기화를 이어가면 된다.
+ */
+@Getter
+@EqualsAndHashCode
+public class ChangeFeedCursor {
+
+    private static final String SEPARATOR = "_";
+
+    private final LocalDateTime lastModifiedDate;
+    private final Long id;
+
+    private ChangeFeedCursor(LocalDateTime lastModifiedDate, Long id) {
+        //DB(TIMESTAMP)는 마이크로초까지만 저장하므로 영속성 컨텍스트에 남아있는 나노초 값과 비교가 어긋나지 않게 맞춰준다.
+        this.lastModifiedDate = lastModifiedDate.truncatedTo(ChronoUnit.MICROS);
+        this.id = id;
+    }
+
+    public static ChangeFeedCursor of(LocalDateTime lastModifiedDate, Long id) {
+        return new ChangeFeedCursor(lastModifiedDate, id);
+    }
+
+    /**
+     * watermark 이후(같은 시각 포함)에 바뀐 것부터 읽는다.
+     */
+    public static ChangeFeedCursor since(LocalDateTime watermark) {
+        return new ChangeFeedCursor(watermark, 0L);
+    }
+
+    public static ChangeFeedCursor decode(String value) {
+        int index = value.lastIndexOf(SEPARATOR);
+        if (index < 0) {
+            throw new IllegalArgumentException("잘못된 커서: " + value);
+        }
+        return new ChangeFeedCursor(LocalDateTime.parse(value.substring(0, index)), Long.valueOf(value.substring(index + 1)));
+    }
+
+    public String encode() {
+        return lastModifiedDate + SEPARATOR + id;
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
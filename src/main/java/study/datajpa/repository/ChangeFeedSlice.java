@@ -0,0 +1,31 @@
+package study.datajpa.repository;
+
+import lombok.Getter;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 변경 피드 한 묶음과 다음 묶음을 읽을 커서.
+ * 결과가 비어 있으면 nextCursor는 요청한 커서 그대로라서 같은 커서로 다시 폴링하면 된다.
+ */
+@Getter
+public class ChangeFeedSlice<T> {
+
+    private final List<T> content;
+    private final ChangeFeedCursor nextCursor;
+    private final boolean hasNext;
+
+    private ChangeFeedSlice(List<T> content, ChangeFeedCursor nextCursor, boolean hasNext) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+    }
+
+    public static <T> ChangeFeedSlice<T> of(Slice<T> slice, ChangeFeedCursor cursor, Function<T, ChangeFeedCursor> cursorOf) {
+        List<T> content = slice.getContent();
+        ChangeFeedCursor next = content.isEmpty() ? cursor : cursorOf.apply(content.get(content.size() - 1));
+        return new ChangeFeedSlice<>(content, next, slice.hasNext());
+    }
+}
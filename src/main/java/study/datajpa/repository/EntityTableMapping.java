@@ -0,0 +1,83 @@
+package study.datajpa.repository;
+
+import org.hibernate.annotations.Where;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hibernate 매핑 정보에서 꺼낸 테이블/컬럼 이름.
+ * JPA를 거치지 않고 SQL을 직접 만드는 곳(R2DBC 등)에서 컬럼 이름을 하드코딩하지 않고 엔티티 매핑을 그대로 따르기 위해 사용한다.
+ */
+public class EntityTableMapping {
+
+    private final String table;
+    private final String idColumn;
+    private final Map<String, String> columns = new HashMap<>();
+    private final String where; //@Where 조건 (soft delete 등). 없으면 null
+
+    private EntityTableMapping(AbstractEntityPersister persister, Class<?> entityType) {
+        this.table = persister.getTableName();
+        this.idColumn = persister.getIdentifierColumnNames()[0];
+        for (String property : persister.getPropertyNames()) {
+            String[] propertyColumns = persister.getPropertyColumnNames(property);
+            if (propertyColumns.length == 1) { //mappedBy 컬렉션처럼 컬럼이 없는 프로퍼티는 제외
+                columns.put(property, propertyColumns[0]);
+            }
+        }
+        Where where = entityType.getAnnotation(Where.class);
+        this.where = where == null ? null : where.clause();
+    }
+
+    public static EntityTableMapping of(EntityManagerFactory emf, Class<?> entityType) {
+        SessionFactoryImplementor sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+        AbstractEntityPersister persister = (AbstractEntityPersister) sessionFactory.getMetamodel().entityPersister(entityType);
+        return new EntityTableMapping(persister, entityType);
+    }
+
+    public String table() {
+        return table;
+    }
+
+    public String idColumn() {
+        return idColumn;
+    }
+
+    public String column(String property) {
+        if ("id".equals(property)) {
+            return idColumn;
+        }
+        String column = columns.get(property);
+        if (column == null) {
+            throw new IllegalArgumentException(table + "에 매핑된 컬럼이 없는 프로퍼티: " + property);
+        }
+        return column;
+    }
+
+    /**
+     * "select a, b from table" 형태. 컬럼 순서는 인자 순서와 같다.
+     */
+    public String select(String... properties) {
+        StringBuilder sql = new StringBuilder("select ");
+        for (int i = 0; i < properties.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(column(properties[i]));
+        }
+        return sql.append(" from ").append(table).toString();
+    }
+
+    /**
+     * condition과 @Where 조건을 and로 묶은 where 절. 둘 다 없으면 빈 문자열
+     */
+    public String where(String condition) {
+        if (condition == null) {
+            return where == null ? "" : " where " + where;
+        }
+        return where == null ? " where " + condition : " where (" + condition + ") and " + where;
+    }
+}
@@ -0,0 +1,39 @@
+package study.datajpa.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.datajpa.id.IdBlocks;
+
+/**
+ * JDBC로 id를 직접 넣을 때(가져오기, 대량 데이터 생성 등) Hibernate가 같은 id를 발급하지 않게 한다.
+ * Member, Team은 BlockIdGenerator라 테이블마다 id_block의 segment(테이블 이름)에서 블록을 받는다.
+ *   - reserve: 넣을 id 범위를 미리 예약한다. 실행 중인 노드가 이미 받아둔 블록과도 겹치지 않는다.
+ *   - advancePastExistingIds: 파일처럼 id가 정해져 있는 데이터를 넣은 뒤 다음 블록이 그 다음부터 나가게 한다.
+ *     이미 받아둔 블록은 그대로 쓰므로 비어 있는 테이블에 애플리케이션 쓰기 전에 가져오자.
+ */
+public abstract class IdSequences {
+
+    private static final String[][] TABLES = {{"member", "member_id"}, {"team", "team_id"}};
+
+    public static void advancePastExistingIds(JdbcTemplate jdbcTemplate) {
+        for (String[] table : TABLES) {
+            jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+                IdBlocks.advancePast(con, table[0], IdBlocks.seedSql(table[0], table[1]));
+                return null;
+            });
+        }
+    }
+
+    /**
+     * table(member / team)의 id를 count개 예약하고 첫 id를 돌려준다.
+     */
+    public static long reserve(JdbcTemplate jdbcTemplate, String table, long count) {
+        for (String[] candidate : TABLES) {
+            if (candidate[0].equals(table)) {
+                return jdbcTemplate.execute((ConnectionCallback<Long>) con ->
+                        IdBlocks.allocate(con, table, IdBlocks.seedSql(table, candidate[1]), count));
+            }
+        }
+        throw new IllegalArgumentException("id 블록을 쓰지 않는 테이블: " + table);
+    }
+}
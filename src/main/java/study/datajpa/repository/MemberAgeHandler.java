@@ -0,0 +1,9 @@
+package study.datajpa.repository;
+
+/**
+ * (id, age) 행을 박싱 없이 한 건씩 넘겨받는 콜백.
+ */
+@FunctionalInterface
+public interface MemberAgeHandler {
+    void handle(long id, int age);
+}
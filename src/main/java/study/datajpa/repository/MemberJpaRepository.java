@@ -22,7 +22,14 @@ public class MemberJpaRepository {
     }
 
     public void delete(Member member) {
-        em.remove(member);
+        em.remove(member); //Member의 @SQLDelete 때문에 실제로는 deleted = true로 update된다.
+    }
+
+    //조회 없이 삭제 표시
+    public int deleteById(Long id) {
+        return em.createQuery("update Member m set m.deleted = true, m.lastModifiedDate = current_timestamp where m.id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
     }
 
     public Member find(Long id) {
@@ -58,7 +65,7 @@ public class MemberJpaRepository {
 
     //순수 JPA를 이용한 bulkUpdate
     public int bulkAgePlus(int age) {
-        return em.createQuery("update Member m set m.age = m.age + 1 where m.age >= :age")
+        return em.createQuery("update Member m set m.age = m.age + 1, m.lastModifiedDate = current_timestamp where m.age >= :age")
                 .setParameter("age", age)
                 .executeUpdate();
     }
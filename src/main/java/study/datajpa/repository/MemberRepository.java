@@ -1,16 +1,20 @@
 package study.datajpa.repository;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
+import study.datajpa.cache.CachedQuery;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
+import study.datajpa.fastread.FastJdbcRead;
 
 import javax.persistence.LockModeType;
 import javax.persistence.QueryHint;
 import javax.swing.text.html.Option;
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -31,12 +35,23 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     @Query("select m from Member m where m.username = :username and m.age = :age")
     List<Member> findUser(@Param("username") String username, @Param("age") int age);
 
+    @CachedQuery(tables = "member")
     @Query("select m.username from Member m")
     List<String> findUsernameList();
 
+    @CachedQuery(tables = {"member", "team"}) //join한 테이블까지 적어야 팀 이름이 바뀔 때도 무효화된다.
     @Query("select new study.datajpa.dto.MemberDto(m.id, m.username, t.name) from Member m join m.team t")
     List<MemberDto> findMemberDto();
 
+    @Override
+    @CachedQuery(tables = "member")
+    long count();
+
+    //엔티티(스냅샷, team 프록시)를 만들지 않고 DTO로 바로 조회한다. Page.map으로 한 번 더 변환할 필요도 없음
+    @Query(value = "select new study.datajpa.dto.MemberDto(m.id, m.username, t.name) from Member m left join m.team t",
+            countQuery = "select count(m) from Member m")
+    Page<MemberDto> findMemberDtoPage(Pageable pageable);
+
     @Query("select m from Member m where m.username in :names")
     List<Member> findByNames(@Param("names") Collection<String> names);
 
@@ -45,6 +60,19 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     Member findMemberByUsername(String username); //단건
     Optional<Member> findOptionalByUsername(String username); //단건 Optional
 
+    //==큰 팀의 회원 (team.members를 초기화하지 않고)==//
+    long countByTeamId(Long teamId);
+    boolean existsByTeamIdAndId(Long teamId, Long id);
+    Slice<Member> findByTeamIdOrderByIdAsc(Long teamId, Pageable pageable); //offset이 커지면 forEachTeamMemberBatch(키셋)를 쓰자
+
+    //==Hibernate 없이 JDBC로 읽는 조회 (읽기 전용 엔티티, 결과는 findById / findByUsername / findByAge와 같다)==//
+    @FastJdbcRead
+    Optional<Member> readById(Long id);
+    @FastJdbcRead
+    List<Member> readByUsername(String username);
+    @FastJdbcRead
+    Page<Member> readByAge(int age, Pageable pageable);
+
     //==페이징==//
     Page<Member> findByAge(int age, Pageable pageable);
     Slice<Member> findSliceByAge(int age, Pageable pageable);
@@ -56,9 +84,10 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     Page<Member> findCountQuerySeparateByAge(int age, Pageable pageable);
 
     @Modifying(clearAutomatically = true) //executeUpdate와 같은 역할
-    @Query("update Member m set m.age = m.age + 1 where m.age >= :age")
+    @Query("update Member m set m.age = m.age + 1, m.lastModifiedDate = current_timestamp where m.age >= :age") //벌크 연산은 Auditing이 동작하지 않으므로 직접 갱신 (변경 피드에서 누락되지 않게)
     int bulkAgePlus(@Param("age") int age);
 
+    //fetch 전략을 호출할 때 고르려면 findAll(FetchPlan.of("team")) (MemberRepositoryCustom)
     @Query("select m from Member m left join fetch m.team")
     List<Member> findMemberFetchJoin();
 
@@ -81,4 +110,32 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     List<Member> findLockByUsername(String username);
 
+    //==soft delete==//
+    //조회 없이 바로 update 한 번으로 삭제 표시만 한다. (em.remove는 먼저 엔티티를 조회해야 함)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Member m set m.deleted = true, m.lastModifiedDate = current_timestamp where m.id = :id")
+    int softDeleteById(@Param("id") Long id);
+
+    //삭제 표시된 회원을 size건만 실제로 지운다. 한 번에 지우면 락을 오래 잡으므로 MemberPurgeJob에서 나눠서 호출한다.
+    @Modifying
+    @Query(value = "delete from member where deleted = true limit :size", nativeQuery = true)
+    int purgeDeleted(@Param("size") int size);
+
+    //==변경 피드==//
+    //soft delete된 회원도 deleted = true로 내려줘야 하므로 @Where가 붙지 않는 네이티브 쿼리를 사용
+    @Query(value = "select * from member m" +
+            " where m.last_modified_date > :date or (m.last_modified_date = :date and m.member_id > :id)" +
+            " order by m.last_modified_date asc, m.member_id asc", nativeQuery = true)
+    Slice<Member> findChangedAfter(@Param("date") LocalDateTime date, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * cursor 이후에 바뀐 회원을 (lastModifiedDate, id) 순서로 size개씩 읽는다.
+     * idx_member_last_modified 인덱스를 타므로 테이블 크기와 상관없이 바뀐 양만큼만 읽는다.
+     * 커밋이 늦게 된 트랜잭션은 더 이른 시각으로 기록될 수 있으니 watermark는 약간 여유를 두고 잡자.
+     */
+    default ChangeFeedSlice<Member> findChanges(ChangeFeedCursor cursor, int size) {
+        Slice<Member> slice = findChangedAfter(cursor.getLastModifiedDate(), cursor.getId(), PageRequest.of(0, size));
+        return ChangeFeedSlice.of(slice, cursor, m -> ChangeFeedCursor.of(m.getLastModifiedDate(), m.getId()));
+    }
+
 }
@@ -1,9 +1,33 @@
 package study.datajpa.repository;
 
+import org.springframework.data.domain.Sort;
+import study.datajpa.dto.MemberAgeColumns;
 import study.datajpa.entity.Member;
+import study.datajpa.fetch.FetchPlan;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface MemberRepositoryCustom {
     List<Member> findMemberCustom();
+
+    //==엔티티 없이 primitive 값으로 조회==//
+    void findIdAndAge(MemberAgeHandler handler);
+    MemberAgeColumns findIdAndAgeColumns();
+
+    //==JDBC 커서로 바로 스트리밍==//
+    void streamMemberDto(long offset, int limit, Sort sort, MemberRowHandler handler);
+
+    //==호출할 때 fetch 전략을 고르는 조회 (findAll, findMemberFetchJoin, findMemberEntityGraph를 하나로)==//
+    List<Member> findAll(FetchPlan plan);
+    List<Member> findByUsername(String username, FetchPlan plan);
+    Optional<Member> findById(Long id, FetchPlan plan);
+
+    //==큰 팀의 회원을 id 순서로 batchSize씩 (키셋)==//
+    long forEachTeamMemberBatch(Long teamId, int batchSize, Consumer<List<Member>> consumer);
+
+    //==username 검색 (메모리 인덱스, 일치 > 앞부분 일치 > 중간 일치 순)==//
+    List<Member> searchByUsername(String query, int limit);
+    List<String> suggestUsernames(String prefix, int limit);
 }
@@ -1,16 +1,41 @@
 package study.datajpa.repository;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Required;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import study.datajpa.dto.MemberAgeColumns;
 import study.datajpa.entity.Member;
+import study.datajpa.fetch.FetchPlan;
+import study.datajpa.fetch.FetchPlanProfiler;
+import study.datajpa.search.UsernameMatch;
+import study.datajpa.search.UsernameSearchIndex;
 
 import javax.persistence.EntityManager;
-import java.util.List;
+import javax.persistence.TypedQuery;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
+    private static final int FETCH_SIZE = 1000;
+
+    //streamMemberDto가 정렬할 수 있는 프로퍼티 -> 컬럼. 요청 파라미터가 SQL에 그대로 들어가지 않도록 여기 있는 것만 허용한다.
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "id", "m.member_id",
+            "username", "m.username",
+            "age", "m.age");
+
     private final EntityManager em;
+    private final JdbcTemplate jdbcTemplate;
+    private final FetchPlanProfiler fetchPlanProfiler;
+    private final UsernameSearchIndex usernameSearchIndex;
 
 
     @Override
@@ -18,4 +43,195 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
         return em.createQuery("select m from Member m")
                 .getResultList();
     }
+
+    /**
+     * JPQL 스칼라 조회(select m.id, m.age)는 결과가 Object[]에 박싱된 Long/Integer로 담겨서 나온다.
+     * 대량 리포팅용이라 JDBC ResultSet에서 getLong/getInt로 바로 꺼내서 넘긴다. (엔티티 하이드레이션도 없음)
+     */
+    @Override
+    public void findIdAndAge(MemberAgeHandler handler) {
+        //JDBC로 직접 읽으므로 같은 트랜잭션에서 아직 flush되지 않은 변경사항을 먼저 반영해준다.
+        if (em.isJoinedToTransaction()) {
+            em.flush();
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("select member_id, age from member where deleted = false");
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> handler.handle(rs.getLong(1), rs.getInt(2)));
+    }
+
+    @Override
+    public MemberAgeColumns findIdAndAgeColumns() {
+        MemberAgeColumns columns = new MemberAgeColumns();
+        findIdAndAge(columns::add);
+        return columns;
+    }
+
+    /**
+     * 페이지 한 장을 JDBC 커서로 읽으면서 한 행씩 handler에 넘긴다. 엔티티도 DTO 리스트도 만들지 않는다.
+     * 정렬이 없으면 id 순서로 읽어서 페이지 경계가 흔들리지 않게 한다.
+     */
+    @Override
+    public void streamMemberDto(long offset, int limit, Sort sort, MemberRowHandler handler) {
+        if (em.isJoinedToTransaction()) {
+            em.flush();
+        }
+        String sql = "select m.member_id, m.username, t.name from member m" +
+                " left join team t on t.team_id = m.team_id" +
+                " where m.deleted = false" +
+                " order by " + orderBy(sort) +
+                " limit ? offset ?";
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setFetchSize(Math.min(limit, FETCH_SIZE));
+            ps.setInt(1, limit);
+            ps.setLong(2, offset);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            try {
+                handler.handle(rs.getLong(1), rs.getString(2), rs.getString(3));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public List<Member> findAll(FetchPlan plan) {
+        return fetch(plan, "", Map.of());
+    }
+
+    @Override
+    public List<Member> findByUsername(String username, FetchPlan plan) {
+        return fetch(plan, " where m.username = :username", Map.of("username", username));
+    }
+
+    @Override
+    public Optional<Member> findById(Long id, FetchPlan plan) {
+        return fetch(plan, " where m.id = :id", Map.of("id", id)).stream().findFirst();
+    }
+
+    /**
+     * plan을 EntityGraph(fetchgraph 힌트)로 바꿔서 붙인다. 컬렉션(team.members)까지 읽으면 회원이 중복되므로 distinct
+     * 프로파일링 중이면 FetchPlanProfiler가 lazy로 바꾸고 호출한 쪽이 어떤 연관관계를 읽는지 지켜본다.
+     */
+    private List<Member> fetch(FetchPlan requested, String where, Map<String, ?> parameters) {
+        FetchPlanProfiler.Invocation invocation = fetchPlanProfiler.begin(Member.class, requested);
+        FetchPlan plan = invocation.getPlan();
+        boolean distinct = plan.fetchesCollection(em.getMetamodel(), Member.class);
+
+        TypedQuery<Member> query = em.createQuery("select " + (distinct ? "distinct " : "") + "m from Member m" + where, Member.class);
+        parameters.forEach(query::setParameter);
+        if (!plan.isLazy()) {
+            query.setHint("javax.persistence.fetchgraph", plan.toEntityGraph(em, Member.class));
+        }
+        if (distinct) {
+            query.setHint("hibernate.query.passDistinctThrough", false); //SQL에는 distinct를 붙이지 않고 메모리에서만 중복 제거
+        }
+        return invocation.observe(query.getResultList());
+    }
+
+    /**
+     * 팀 회원을 id 순서로 batchSize개씩 읽어서 넘긴다. offset 대신 마지막 id 다음부터 읽으므로 뒤쪽 배치도 느려지지 않는다. (idx_member_team)
+     * 배치를 처리하고 나면 flush 후 detach 해서 영속성 컨텍스트에는 한 배치만 남는다.
+     * 그래서 consumer 밖에서 이전 배치의 회원을 바꿔도 반영되지 않는다.
+     */
+    @Override
+    public long forEachTeamMemberBatch(Long teamId, int batchSize, Consumer<List<Member>> consumer) {
+        long total = 0;
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            List<Member> batch = em.createQuery("select m from Member m where m.team.id = :teamId and m.id > :lastId order by m.id", Member.class)
+                    .setParameter("teamId", teamId)
+                    .setParameter("lastId", lastId)
+                    .setMaxResults(batchSize)
+                    .getResultList();
+            if (batch.isEmpty()) {
+                return total;
+            }
+            consumer.accept(batch);
+            total += batch.size();
+            lastId = batch.get(batch.size() - 1).getId();
+            if (em.isJoinedToTransaction()) {
+                em.flush();
+            }
+            batch.forEach(em::detach);
+            if (batch.size() < batchSize) {
+                return total;
+            }
+        }
+    }
+
+    /**
+     * 인덱스에서 순위대로 회원 id를 limit개 고른 다음 id로 한 번에 읽는다. 테이블을 훑지 않는다.
+     * 인덱스는 커밋된 변경만 반영하고, 벌크로 지운 회원이 남아 있을 수 있지만 여기서 DB로 다시 읽으므로 결과에는 나오지 않는다.
+     * 그렇게 빠진 만큼은 다음 순위의 id로 다시 채운다. (인덱스의 후보가 모자라면 검색할 이름 수를 두 배로 늘려서)
+     */
+    @Override
+    public List<Member> searchByUsername(String query, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<Member> ranked = new ArrayList<>(limit);
+        Set<Long> checked = new HashSet<>();
+        for (int names = limit; ; names *= 2) {
+            List<UsernameMatch> matches = usernameSearchIndex.search(query, names);
+            List<Long> candidates = new ArrayList<>();
+            for (UsernameMatch match : matches) {
+                for (Long id : match.getMemberIds()) {
+                    if (checked.add(id)) {
+                        candidates.add(id);
+                    }
+                }
+            }
+            //모자란 만큼씩 읽는다. 대부분은 첫 번째에 limit개가 다 채워진다.
+            int from = 0;
+            while (from < candidates.size() && ranked.size() < limit) {
+                List<Long> ids = candidates.subList(from, Math.min(candidates.size(), from + limit - ranked.size()));
+                from += ids.size();
+                ranked.addAll(findAllInOrder(ids));
+            }
+            if (ranked.size() == limit || matches.size() < names) {
+                return ranked;
+            }
+        }
+    }
+
+    //ids 순서대로. DB에 없는(지워진) id는 빠진다.
+    private List<Member> findAllInOrder(List<Long> ids) {
+        Map<Long, Member> members = em.createQuery("select m from Member m where m.id in :ids", Member.class)
+                .setParameter("ids", ids)
+                .getResultStream()
+                .collect(Collectors.toMap(Member::getId, Function.identity()));
+        List<Member> ordered = new ArrayList<>(members.size());
+        for (Long id : ids) {
+            Member member = members.get(id);
+            if (member != null) {
+                ordered.add(member);
+            }
+        }
+        return ordered;
+    }
+
+    //자동완성용. DB를 읽지 않는다.
+    @Override
+    public List<String> suggestUsernames(String prefix, int limit) {
+        return usernameSearchIndex.search(prefix, limit).stream()
+                .map(UsernameMatch::getUsername)
+                .collect(Collectors.toList());
+    }
+
+    private String orderBy(Sort sort) {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (Sort.Order order : sort) {
+            String column = SORT_COLUMNS.get(order.getProperty());
+            if (column == null) {
+                throw new IllegalArgumentException("정렬할 수 없는 프로퍼티: " + order.getProperty());
+            }
+            joiner.add(column + (order.isAscending() ? " asc" : " desc"));
+        }
+        joiner.add("m.member_id asc");
+        return joiner.toString();
+    }
 }
@@ -0,0 +1,12 @@
+package study.datajpa.repository;
+
+import java.io.IOException;
+
+/**
+ * 회원 한 행(id, username, teamName)을 DTO를 만들지 않고 바로 넘겨받는 콜백.
+ * 응답 스트림에 바로 쓰는 용도라 IOException을 던질 수 있다.
+ */
+@FunctionalInterface
+public interface MemberRowHandler {
+    void handle(long id, String username, String teamName) throws IOException;
+}
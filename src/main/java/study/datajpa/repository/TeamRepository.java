@@ -1,7 +1,26 @@
 package study.datajpa.repository;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import study.datajpa.entity.Team;
 
+import java.time.LocalDateTime;
+
 public interface TeamRepository extends JpaRepository<Team, Long> {
+
+    //==변경 피드==//
+    @Query("select t from Team t" +
+            " where t.lastModifiedDate > :date or (t.lastModifiedDate = :date and t.id > :id)" +
+            " order by t.lastModifiedDate asc, t.id asc")
+    Slice<Team> findChangedAfter(@Param("date") LocalDateTime date, @Param("id") Long id, Pageable pageable);
+
+    //MemberRepository.findChanges와 같은 방식
+    default ChangeFeedSlice<Team> findChanges(ChangeFeedCursor cursor, int size) {
+        Slice<Team> slice = findChangedAfter(cursor.getLastModifiedDate(), cursor.getId(), PageRequest.of(0, size));
+        return ChangeFeedSlice.of(slice, cursor, t -> ChangeFeedCursor.of(t.getLastModifiedDate(), t.getId()));
+    }
 }
@@ -0,0 +1,8 @@
+package study.datajpa.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import study.datajpa.entity.TeamStats;
+
+//조회 전용. 갱신은 TeamStatsListener, TeamStatsReconciler가 한다.
+public interface TeamStatsRepository extends JpaRepository<TeamStats, Long> {
+}
@@ -0,0 +1,31 @@
+package study.datajpa.repository.reactive;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * JDBC와 같은 H2 데이터베이스(spring.datasource.*)를 R2DBC로 연결한다.
+ * spring-data-r2dbc는 넣지 않았다. JPA 트랜잭션 매니저와 R2DBC 트랜잭션 매니저가 같이 잡히면서 충돌하기 때문.
+ */
+@Configuration
+public class R2dbcConfig {
+
+    private static final String H2_JDBC_PREFIX = "jdbc:h2:";
+
+    @Bean
+    public ConnectionFactory connectionFactory(DataSourceProperties properties) {
+        String url = properties.determineUrl();
+        if (url == null || !url.startsWith(H2_JDBC_PREFIX)) {
+            throw new IllegalStateException("R2DBC 조회는 H2만 지원합니다: " + url);
+        }
+        return new H2ConnectionFactory(H2ConnectionConfiguration.builder()
+                .url(url.substring(H2_JDBC_PREFIX.length()))
+                .username(properties.determineUsername())
+                .password(properties.determinePassword() == null ? "" : properties.determinePassword())
+                .build());
+    }
+}
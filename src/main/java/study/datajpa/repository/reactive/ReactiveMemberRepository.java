@@ -0,0 +1,60 @@
+package study.datajpa.repository.reactive;
+
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.EntityTableMapping;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * MemberRepository의 논블로킹 버전. 테이블/컬럼 이름은 JPA 매핑(EntityTableMapping)에서 가져온다.
+ * 돌려주는 Member는 영속성 컨텍스트와 상관없는 조회 전용 객체다.
+ *   - team은 id만 채워진 Team 참조 (지연 로딩 불가)
+ *   - soft delete된 회원은 JPA와 똑같이 제외된다.
+ */
+@Component
+public class ReactiveMemberRepository {
+
+    private static final String[] PROPERTIES = {"id", "username", "age", "team"};
+
+    private final ReactiveQueries queries;
+    private final EntityTableMapping mapping;
+    private final String select;
+
+    public ReactiveMemberRepository(ConnectionFactory connectionFactory, EntityManagerFactory emf) {
+        this.queries = new ReactiveQueries(connectionFactory);
+        this.mapping = EntityTableMapping.of(emf, Member.class);
+        this.select = mapping.select(PROPERTIES);
+    }
+
+    public Mono<Member> findById(Long id) {
+        return queries.query(select + mapping.where(mapping.idColumn() + " = $1"), this::toMember, id).next();
+    }
+
+    public Flux<Member> findByUsername(String username) {
+        return queries.query(select + mapping.where(mapping.column("username") + " = $1"), this::toMember, username);
+    }
+
+    public Flux<Member> findByAge(int age) {
+        return queries.query(select + mapping.where(mapping.column("age") + " = $1") + " order by " + mapping.idColumn(),
+                this::toMember, age);
+    }
+
+    private Member toMember(Row row) {
+        Integer age = row.get(2, Integer.class);
+        Member member = new Member(row.get(1, String.class), age == null ? 0 : age);
+        member.setId(row.get(0, Long.class));
+        Long teamId = row.get(3, Long.class);
+        if (teamId != null) {
+            Team team = new Team(null);
+            team.setId(teamId);
+            member.setTeam(team); //changeTeam은 team.members에 추가하므로 사용하지 않는다.
+        }
+        return member;
+    }
+}
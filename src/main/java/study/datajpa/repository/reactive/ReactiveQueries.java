@@ -0,0 +1,38 @@
+package study.datajpa.repository.reactive;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * 커넥션을 열고, 쿼리를 실행하고, 구독이 끝나면(완료/에러/취소) 커넥션을 닫는다.
+ * 결과는 구독자가 요청한 만큼만 흘려보낸다. (backpressure)
+ */
+class ReactiveQueries {
+
+    private final ConnectionFactory connectionFactory;
+
+    ReactiveQueries(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    <T> Flux<T> query(String sql, Function<Row, T> mapper, Object... args) {
+        return Flux.usingWhen(Mono.from(connectionFactory.create()),
+                connection -> execute(connection, sql, mapper, args),
+                Connection::close);
+    }
+
+    private <T> Flux<T> execute(Connection connection, String sql, Function<Row, T> mapper, Object[] args) {
+        Statement statement = connection.createStatement(sql);
+        for (int i = 0; i < args.length; i++) {
+            statement.bind(i, args[i]);
+        }
+        return Flux.from(statement.execute())
+                .concatMap(result -> result.map((row, metadata) -> mapper.apply(row)));
+    }
+}
@@ -0,0 +1,42 @@
+package study.datajpa.repository.reactive;
+
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.EntityTableMapping;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * TeamRepository의 논블로킹 버전. members 컬렉션은 채우지 않는다.
+ */
+@Component
+public class ReactiveTeamRepository {
+
+    private final ReactiveQueries queries;
+    private final EntityTableMapping mapping;
+    private final String select;
+
+    public ReactiveTeamRepository(ConnectionFactory connectionFactory, EntityManagerFactory emf) {
+        this.queries = new ReactiveQueries(connectionFactory);
+        this.mapping = EntityTableMapping.of(emf, Team.class);
+        this.select = mapping.select("id", "name");
+    }
+
+    public Mono<Team> findById(Long id) {
+        return queries.query(select + mapping.where(mapping.idColumn() + " = $1"), this::toTeam, id).next();
+    }
+
+    public Flux<Team> findAll() {
+        return queries.query(select + mapping.where(null) + " order by " + mapping.idColumn(), this::toTeam);
+    }
+
+    private Team toTeam(Row row) {
+        Team team = new Team(row.get(1, String.class));
+        team.setId(row.get(0, Long.class));
+        return team;
+    }
+}
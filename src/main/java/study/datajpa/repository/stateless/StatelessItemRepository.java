@@ -0,0 +1,16 @@
+package study.datajpa.repository.stateless;
+
+import org.springframework.stereotype.Component;
+import study.datajpa.entity.Item;
+
+/**
+ * ItemRepository의 StatelessSession 버전.
+ * id를 직접 넣는 엔티티라 JpaRepository.save처럼 isNew(merge 여부)를 따지지 않고 insert / update를 골라서 호출한다.
+ */
+@Component
+public class StatelessItemRepository extends StatelessRepository<Item, String> {
+
+    public StatelessItemRepository(StatelessSessions sessions) {
+        super(sessions, Item.class);
+    }
+}
@@ -0,0 +1,80 @@
+package study.datajpa.repository.stateless;
+
+import org.springframework.stereotype.Component;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.search.UsernameSearchIndex;
+import study.datajpa.stats.TeamStatsReconciler;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * MemberRepository의 StatelessSession 버전. 조회 쿼리는 MemberRepository와 같은 JPQL을 쓴다.
+ * soft delete(@SQLDelete, @Where)도 그대로 적용된다.
+ */
+@Component
+public class StatelessMemberRepository extends StatelessRepository<Member, Long> {
+
+    private static final String FIND_USER = queryOf(MemberRepository.class, "findUser");
+    private static final String FIND_BY_NAMES = queryOf(MemberRepository.class, "findByNames");
+    private static final String FIND_USERNAME_LIST = queryOf(MemberRepository.class, "findUsernameList");
+    private static final String FIND_MEMBER_DTO = queryOf(MemberRepository.class, "findMemberDto");
+
+    private final TeamStatsReconciler teamStatsReconciler;
+    private final UsernameSearchIndex usernameSearchIndex;
+
+    public StatelessMemberRepository(StatelessSessions sessions, TeamStatsReconciler teamStatsReconciler, UsernameSearchIndex usernameSearchIndex) {
+        super(sessions, Member.class);
+        this.teamStatsReconciler = teamStatsReconciler;
+        this.usernameSearchIndex = usernameSearchIndex;
+    }
+
+    @Override
+    protected void afterWrite() {
+        //TeamStatsListener, UsernameIndexListener가 보지 못하는 변경
+        teamStatsReconciler.requestReconcile();
+        usernameSearchIndex.requestRebuild();
+    }
+
+    public List<Member> findByUsername(String username) {
+        return listNamed("Member.findByUsername", Map.of("username", username));
+    }
+
+    public List<Member> findByUsernameAndAgeGreaterThan(String username, int age) {
+        return list("select m from Member m where m.username = :username and m.age > :age",
+                Map.of("username", username, "age", age));
+    }
+
+    public List<Member> findUser(String username, int age) {
+        return list(FIND_USER, Map.of("username", username, "age", age));
+    }
+
+    public List<Member> findByNames(Collection<String> names) {
+        return list(FIND_BY_NAMES, Map.of("names", names));
+    }
+
+    public List<String> findUsernameList() {
+        return list(FIND_USERNAME_LIST, String.class, Map.of());
+    }
+
+    public List<MemberDto> findMemberDto() {
+        return list(FIND_MEMBER_DTO, MemberDto.class, Map.of());
+    }
+
+    public List<Member> findByAge(int age) {
+        return list("select m from Member m where m.age = :age", Map.of("age", age));
+    }
+
+    //team까지 필요한 이관 작업용. StatelessSession에서는 지연 로딩이 안 되므로 fetch join으로 같이 읽는다.
+    public long scrollWithTeam(Consumer<? super Member> consumer) {
+        return scroll("select m from Member m left join fetch m.team", Map.of(), consumer);
+    }
+
+    public long scrollByAge(int age, Consumer<? super Member> consumer) {
+        return scroll("select m from Member m where m.age = :age", Map.of("age", age), consumer);
+    }
+}
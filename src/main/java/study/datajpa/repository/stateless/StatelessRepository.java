@@ -0,0 +1,158 @@
+package study.datajpa.repository.stateless;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.StatelessSession;
+import org.hibernate.query.Query;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * StatelessSession으로 동작하는 리포지토리의 공통 부분.
+ * 영속성 컨텍스트(1차 캐시), dirty checking, cascade, 지연 로딩이 없어서 엔티티 한 건당 비용이 작다. 대량 적재/이관(ETL)용
+ *
+ * JpaRepository와 다른 점
+ *   - 변경 감지가 없으므로 바꾼 엔티티는 update를 직접 호출해야 한다.
+ *   - 돌려받은 엔티티의 지연 로딩 연관관계(member.team 등)는 초기화할 수 없다. (id만 꺼낼 수 있음) 필요하면 fetch join으로 조회하자.
+ *   - cascade가 없으므로 연관된 엔티티(team)는 먼저 저장되어 있어야 한다.
+ *   - Auditing(생성일, 수정일, 작성자)은 StatelessSessions가 AuditingHandler로 직접 채운다.
+ *   - 같은 트랜잭션의 영속성 컨텍스트에 이미 올라온 엔티티에는 변경이 반영되지 않는다.
+ */
+public abstract class StatelessRepository<T, ID extends Serializable> {
+
+    private static final int FETCH_SIZE = 1000;
+
+    protected final StatelessSessions sessions;
+    private final Class<T> type;
+
+    protected StatelessRepository(StatelessSessions sessions, Class<T> type) {
+        this.sessions = sessions;
+        this.type = type;
+    }
+
+    public T insert(T entity) {
+        return insertAll(List.of(entity)).get(0);
+    }
+
+    /**
+     * batch-size개씩 묶어서 insert. 저장된 엔티티(id가 채워짐)를 그대로 돌려준다.
+     * Member, Team의 id는 BlockIdGenerator가 메모리에 예약해둔 블록에서 나오므로 (블록을 새로 받을 때도 별도 커넥션) batch가 끊기지 않는다.
+     */
+    public List<T> insertAll(Iterable<? extends T> entities) {
+        return sessions.execute(session -> {
+            List<T> inserted = new ArrayList<>();
+            for (T entity : entities) {
+                sessions.markCreated(entity);
+                session.insert(entity);
+                inserted.add(entity);
+            }
+            afterWrite();
+            return inserted;
+        });
+    }
+
+    public void update(T entity) {
+        updateAll(List.of(entity));
+    }
+
+    public void updateAll(Iterable<? extends T> entities) {
+        sessions.execute(session -> {
+            for (T entity : entities) {
+                sessions.markModified(entity);
+                session.update(entity);
+            }
+            afterWrite();
+            return null;
+        });
+    }
+
+    //@SQLDelete가 붙은 엔티티(Member)는 JpaRepository.delete처럼 삭제 표시만 한다.
+    public void delete(T entity) {
+        deleteAll(List.of(entity));
+    }
+
+    public void deleteAll(Iterable<? extends T> entities) {
+        sessions.execute(session -> {
+            for (T entity : entities) {
+                session.delete(entity);
+            }
+            afterWrite();
+            return null;
+        });
+    }
+
+    //StatelessSession은 Hibernate 이벤트를 발생시키지 않으므로, 이벤트로 맞추는 값(TeamStats 등)이 있으면 여기서 처리한다.
+    protected void afterWrite() {
+    }
+
+    public Optional<T> findById(ID id) {
+        return sessions.execute(session -> Optional.ofNullable(type.cast(session.get(type, id))));
+    }
+
+    /**
+     * 모든 엔티티를 JDBC 커서로 읽으면서 한 건씩 넘긴다. 읽은 엔티티는 어디에도 쌓이지 않는다.
+     * @return 넘긴 건수
+     */
+    public long scroll(Consumer<? super T> consumer) {
+        return scroll("select e from " + type.getSimpleName() + " e", Map.of(), consumer);
+    }
+
+    protected long scroll(String hql, Map<String, ?> parameters, Consumer<? super T> consumer) {
+        return sessions.execute(session -> {
+            Query<T> query = bind(session.createQuery(hql, type), parameters)
+                    .setFetchSize(FETCH_SIZE);
+            long count = 0;
+            try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+                while (results.next()) {
+                    consumer.accept(type.cast(results.get(0)));
+                    count++;
+                }
+            }
+            return count;
+        });
+    }
+
+    protected List<T> list(String hql, Map<String, ?> parameters) {
+        return list(hql, type, parameters);
+    }
+
+    protected <R> List<R> list(String hql, Class<R> resultType, Map<String, ?> parameters) {
+        return sessions.execute(session -> bind(session.createQuery(hql, resultType), parameters).list());
+    }
+
+    protected List<T> listNamed(String queryName, Map<String, ?> parameters) {
+        return sessions.execute(session -> bind(session.createNamedQuery(queryName, type), parameters).list());
+    }
+
+    private static <R> Query<R> bind(Query<R> query, Map<String, ?> parameters) {
+        parameters.forEach((name, value) -> {
+            if (value instanceof Collection) {
+                query.setParameterList(name, (Collection<?>) value);
+            } else {
+                query.setParameter(name, value);
+            }
+        });
+        return query;
+    }
+
+    /**
+     * JpaRepository 쪽 @Query에 적힌 JPQL을 그대로 가져온다. 같은 쿼리를 두 군데 적지 않기 위해서
+     */
+    protected static String queryOf(Class<?> repositoryInterface, String methodName) {
+        for (Method method : repositoryInterface.getDeclaredMethods()) {
+            org.springframework.data.jpa.repository.Query query =
+                    method.getAnnotation(org.springframework.data.jpa.repository.Query.class);
+            if (method.getName().equals(methodName) && query != null) {
+                return query.value();
+            }
+        }
+        throw new IllegalArgumentException("no @Query method " + repositoryInterface.getSimpleName() + "." + methodName);
+    }
+}
@@ -0,0 +1,71 @@
+package study.datajpa.repository.stateless;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.auditing.AuditingHandler;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.function.Function;
+
+/**
+ * 현재 트랜잭션의 JDBC 커넥션 위에서 StatelessSession을 열고 닫는다.
+ *   - 트랜잭션이 없으면 새로 시작한다. (REQUIRED) 그래서 @Transactional 안에서 부르면 같이 커밋/롤백된다.
+ *   - 같은 트랜잭션의 EntityManager에 flush 안 된 변경이 있으면 먼저 flush 한다.
+ *   - 모아둔 JDBC batch는 세션을 닫기 전에 직접 실행한다. (StatelessSession은 닫을 때 남은 batch를 버린다)
+ */
+@Component
+class StatelessSessions {
+
+    private final SessionFactory sessionFactory;
+    private final DataSource dataSource;
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditingHandler auditingHandler;
+    private final int batchSize;
+
+    StatelessSessions(EntityManagerFactory emf, DataSource dataSource, EntityManager em,
+                      PlatformTransactionManager transactionManager, AuditingHandler auditingHandler,
+                      @Value("${datajpa.stateless.batch-size:1000}") int batchSize) {
+        this.sessionFactory = emf.unwrap(SessionFactory.class);
+        this.dataSource = dataSource;
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.auditingHandler = auditingHandler;
+        this.batchSize = batchSize;
+    }
+
+    <R> R execute(Function<StatelessSession, R> work) {
+        return transactionTemplate.execute(status -> {
+            if (em.isJoinedToTransaction()) {
+                em.flush();
+            }
+            Connection connection = DataSourceUtils.getConnection(dataSource);
+            try (StatelessSession session = sessionFactory.openStatelessSession(connection)) {
+                session.setJdbcBatchSize(batchSize);
+                R result = work.apply(session);
+                ((SharedSessionContractImplementor) session).getJdbcCoordinator().executeBatch();
+                return result;
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        });
+    }
+
+    //StatelessSession은 엔티티 리스너(AuditingEntityListener)를 호출하지 않으므로 직접 채운다.
+    void markCreated(Object entity) {
+        auditingHandler.markCreated(entity);
+    }
+
+    void markModified(Object entity) {
+        auditingHandler.markModified(entity);
+    }
+}
@@ -0,0 +1,24 @@
+package study.datajpa.repository.stateless;
+
+import org.springframework.stereotype.Component;
+import study.datajpa.entity.Team;
+import study.datajpa.stats.TeamStatsReconciler;
+
+/**
+ * TeamRepository의 StatelessSession 버전. members 컬렉션은 읽지도 저장하지도 않는다. (회원은 StatelessMemberRepository로)
+ */
+@Component
+public class StatelessTeamRepository extends StatelessRepository<Team, Long> {
+
+    private final TeamStatsReconciler teamStatsReconciler;
+
+    public StatelessTeamRepository(StatelessSessions sessions, TeamStatsReconciler teamStatsReconciler) {
+        super(sessions, Team.class);
+        this.teamStatsReconciler = teamStatsReconciler;
+    }
+
+    @Override
+    protected void afterWrite() {
+        teamStatsReconciler.requestReconcile(); //TeamStatsListener가 보지 못하는 변경
+    }
+}
@@ -0,0 +1,95 @@
+package study.datajpa.search;
+
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+import study.datajpa.entity.Member;
+import study.datajpa.support.PendingChangesListener;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Member insert / update(username 변경, soft delete) / delete를 UsernameSearchIndex에 반영한다.
+ *   - flush 때 Hibernate 이벤트로 인덱스 변경만 모아두고 (세션마다 목록 하나)
+ *   - 커밋이 성공한 뒤(AfterTransactionCompletionProcess)에 적용한다. 롤백되면 버린다.
+ * 그래서 같은 트랜잭션 안에서는 자기가 넣은 회원이 검색되지 않는다.
+ */
+@Component
+public class UsernameIndexListener extends PendingChangesListener<List<Runnable>> {
+
+    private final UsernameSearchIndex index;
+
+    public UsernameIndexListener(EntityManagerFactory emf, UsernameSearchIndex index) {
+        super(emf);
+        this.index = index;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            String username = indexedUsername(event.getPersister(), event.getState());
+            if (username != null) {
+                long id = (Long) event.getId();
+                pending(event.getSession()).add(() -> index.add(id, username));
+            }
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member)) {
+            return;
+        }
+        long id = (Long) event.getId();
+        String after = indexedUsername(event.getPersister(), event.getState());
+        Object[] oldState = event.getOldState();
+        if (oldState == null) { //이전 값을 모르면 (detached 엔티티 update 등) 이전 이름은 rebuild 때 빠진다.
+            if (after != null) {
+                pending(event.getSession()).add(() -> index.add(id, after));
+            }
+            return;
+        }
+        String before = indexedUsername(event.getPersister(), oldState);
+        if (before != null && before.equals(after)) {
+            return;
+        }
+        pending(event.getSession()).add(() -> {
+            if (before != null) {
+                index.remove(id, before);
+            }
+            if (after != null) {
+                index.add(id, after);
+            }
+        });
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        //Member는 @SQLDelete라 실제로는 deleted = true로 바뀌지만 검색에서 빠지는 것은 같다.
+        if (event.getEntity() instanceof Member) {
+            String username = indexedUsername(event.getPersister(), event.getDeletedState());
+            if (username != null) {
+                long id = (Long) event.getId();
+                pending(event.getSession()).add(() -> index.remove(id, username));
+            }
+        }
+    }
+
+    //검색 대상이면 username, 삭제되었거나 이름이 없으면 null
+    private static String indexedUsername(EntityPersister persister, Object[] state) {
+        boolean deleted = (Boolean) state[persister.getEntityMetamodel().getPropertyIndex("deleted")];
+        return deleted ? null : (String) state[persister.getEntityMetamodel().getPropertyIndex("username")];
+    }
+
+    @Override
+    protected List<Runnable> newPending() {
+        return new ArrayList<>();
+    }
+
+    @Override
+    protected void afterCommit(List<Runnable> changes) {
+        changes.forEach(Runnable::run);
+    }
+}
@@ -0,0 +1,29 @@
+package study.datajpa.search;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * 검색 결과 한 건. 같은 username을 쓰는 회원이 여러 명이면 memberIds에 모두 들어있다.
+ * score: 3 = 일치, 2 = 앞부분 일치(prefix), 1 = 중간 일치
+ */
+@Getter
+@ToString
+public class UsernameMatch {
+
+    public static final int EXACT = 3;
+    public static final int PREFIX = 2;
+    public static final int SUBSTRING = 1;
+
+    private final String username;
+    private final int score;
+    private final List<Long> memberIds;
+
+    public UsernameMatch(String username, int score, List<Long> memberIds) {
+        this.username = username;
+        this.score = score;
+        this.memberIds = memberIds;
+    }
+}
@@ -0,0 +1,237 @@
+package study.datajpa.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import study.datajpa.support.CoalescedRequest;
+
+import java.sql.PreparedStatement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Member.username 검색용 메모리 인덱스. 테이블을 읽지 않고 앞부분 일치 / 중간 일치 검색을 한다.
+ *   - 앞부분 일치: 소문자 username으로 정렬된 ConcurrentSkipListMap의 subMap
+ *   - 중간 일치: username의 3-gram -> username 역색인. 검색어의 3-gram 목록을 교집합한 뒤 실제로 포함하는지 확인한다.
+ *   - 정렬: 점수(일치 > 앞부분 > 중간) -> 그 username을 쓰는 회원 수 -> 짧은 이름 -> 사전순
+ *
+ * 동기화
+ *   - 애플리케이션이 뜰 때 member 테이블을 JDBC로 한 번 읽어서 만든다.
+ *   - 이후에는 UsernameIndexListener가 엔티티 insert / update / delete가 커밋될 때 반영한다.
+ *   - 엔티티 이벤트가 없는 쓰기(StatelessMemberRepository, 바이너리 import, softDeleteById / MemberJpaRepository.deleteById)는
+ *     requestRebuild()로 표시해두고 rebuild-delay-ms마다 한 번에 다시 만든다. 벌크 삭제는 TeamStatsReconcileTrigger가 요청한다.
+ *     (TeamStatsReconciler와 같은 방식. 그 사이에는 새 회원이 검색되지 않거나 지워진 이름이 추천될 수 있다)
+ *     MemberRepository.searchByUsername은 DB에서 회원을 다시 읽으므로 그 사이에도 삭제된 회원은 나오지 않는다.
+ *   - 인덱스는 노드마다 따로 있다. 다른 인스턴스의 쓰기는 이 노드의 rebuild(시작할 때, rebuild-cron) 때에야 보인다.
+ * 읽기는 락 없이, 쓰기(회원 변경)만 인덱스 단위로 직렬화한다.
+ */
+@Slf4j
+@Component
+public class UsernameSearchIndex {
+
+    private static final int GRAM = 3;
+    private static final int MAX_PREFIX_CANDIDATES = 10_000; //"a"처럼 짧은 검색어가 전체를 훑지 않게
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CoalescedRequest rebuildRequested = new CoalescedRequest();
+
+    private volatile Postings postings = new Postings();
+    private List<Runnable> changesDuringRebuild; //rebuild 중에 들어온 변경. 새 인덱스에 다시 적용한다.
+
+    public UsernameSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<UsernameMatch> search(String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        Postings current = postings;
+        Map<String, Integer> scores = new HashMap<>();
+
+        int scanned = 0;
+        for (String name : current.byName.subMap(q, true, q + Character.MAX_VALUE, false).keySet()) {
+            scores.put(name, name.equals(q) ? UsernameMatch.EXACT : UsernameMatch.PREFIX);
+            if (++scanned >= MAX_PREFIX_CANDIDATES) {
+                break;
+            }
+        }
+        if (q.length() >= GRAM) {
+            for (String name : current.containing(q)) {
+                scores.putIfAbsent(name, UsernameMatch.SUBSTRING);
+            }
+        }
+
+        List<UsernameMatch> matches = new ArrayList<>(scores.size());
+        scores.forEach((name, score) -> {
+            Entry entry = current.byName.get(name);
+            if (entry != null) {
+                List<Long> ids = new ArrayList<>(entry.memberIds);
+                if (!ids.isEmpty()) {
+                    matches.add(new UsernameMatch(entry.username, score, ids));
+                }
+            }
+        });
+        matches.sort(Comparator.comparingInt(UsernameMatch::getScore).reversed()
+                .thenComparing(m -> -m.getMemberIds().size())
+                .thenComparingInt(m -> m.getUsername().length())
+                .thenComparing(UsernameMatch::getUsername));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    public synchronized void add(long memberId, String username) {
+        postings.add(memberId, username);
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(() -> postings.add(memberId, username));
+        }
+    }
+
+    public synchronized void remove(long memberId, String username) {
+        postings.remove(memberId, username);
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(() -> postings.remove(memberId, username));
+        }
+    }
+
+    public int size() {
+        return postings.byName.size();
+    }
+
+    //트랜잭션 중이면 커밋된 뒤에 표시한다. 여러 번 요청해도 다음 주기에 한 번만 다시 만든다.
+    public void requestRebuild() {
+        rebuildRequested.request();
+    }
+
+    public boolean isRebuildRequested() {
+        return rebuildRequested.isRequested();
+    }
+
+    @Scheduled(fixedDelayString = "${datajpa.search.rebuild-delay-ms:5000}")
+    public void rebuildIfRequested() {
+        rebuildRequested.runIfRequested(this::rebuild);
+    }
+
+    /**
+     * member 테이블에서 새로 만든다. 만드는 동안에도 기존 인덱스로 검색되고, 그 사이의 변경은 새 인덱스에 다시 적용한다.
+     * (add / remove는 여러 번 적용해도 결과가 같다)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${datajpa.search.rebuild-cron:0 30 4 * * *}")
+    public void rebuild() {
+        synchronized (this) {
+            changesDuringRebuild = new ArrayList<>();
+        }
+        Postings rebuilt = new Postings();
+        try {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement("select member_id, username from member where deleted = false and username is not null");
+                ps.setFetchSize(1000);
+                return ps;
+            }, (RowCallbackHandler) rs -> rebuilt.add(rs.getLong(1), rs.getString(2)));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                changesDuringRebuild = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            Postings previous = postings;
+            postings = rebuilt;
+            changesDuringRebuild.forEach(Runnable::run);
+            changesDuringRebuild = null;
+            log.info("username index rebuilt: {} usernames (was {})", rebuilt.byName.size(), previous.byName.size());
+        }
+    }
+
+    static String normalize(String username) {
+        return username == null ? "" : username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static class Entry {
+        private volatile String username; //보여줄 이름 (대소문자만 다르면 같은 항목)
+        private final Set<Long> memberIds = ConcurrentHashMap.newKeySet();
+
+        Entry(String username) {
+            this.username = username;
+        }
+    }
+
+    //실제 색인 데이터. rebuild 때는 통째로 새로 만들어서 바꿔 끼운다.
+    private static class Postings {
+        private final ConcurrentSkipListMap<String, Entry> byName = new ConcurrentSkipListMap<>();
+        private final ConcurrentHashMap<String, Set<String>> grams = new ConcurrentHashMap<>();
+
+        void add(long memberId, String username) {
+            String name = normalize(username);
+            if (name.isEmpty()) {
+                return;
+            }
+            Entry entry = byName.get(name);
+            if (entry == null) {
+                entry = new Entry(username);
+                byName.put(name, entry);
+                for (String gram : grams(name)) {
+                    grams.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(name);
+                }
+            }
+            entry.username = username;
+            entry.memberIds.add(memberId);
+        }
+
+        void remove(long memberId, String username) {
+            String name = normalize(username);
+            Entry entry = byName.get(name);
+            if (entry == null || !entry.memberIds.remove(memberId) || !entry.memberIds.isEmpty()) {
+                return;
+            }
+            byName.remove(name);
+            for (String gram : grams(name)) {
+                Set<String> names = grams.get(gram);
+                if (names != null) {
+                    names.remove(name);
+                    if (names.isEmpty()) {
+                        grams.remove(gram, names);
+                    }
+                }
+            }
+        }
+
+        //q의 3-gram을 모두 가진 이름 중 실제로 q를 포함하는 이름. 가장 작은 posting부터 교집합
+        List<String> containing(String q) {
+            List<Set<String>> lists = new ArrayList<>();
+            for (String gram : grams(q)) {
+                Set<String> names = grams.get(gram);
+                if (names == null) {
+                    return Collections.emptyList();
+                }
+                lists.add(names);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+            List<String> result = new ArrayList<>();
+            for (String name : lists.get(0)) {
+                boolean inAll = true;
+                for (int i = 1; i < lists.size() && inAll; i++) {
+                    inAll = lists.get(i).contains(name);
+                }
+                if (inAll && name.contains(q)) {
+                    result.add(name);
+                }
+            }
+            return result;
+        }
+
+        private static Set<String> grams(String name) {
+            Set<String> result = new HashSet<>();
+            for (int i = 0; i + GRAM <= name.length(); i++) {
+                result.add(name.substring(i, i + GRAM));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package study.datajpa.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.repository.MemberRepository;
+
+/**
+ * soft delete된 회원을 한가한 시간에 chunk 단위로 실제 삭제한다.
+ * chunk마다 트랜잭션을 따로 커밋하므로 한 번에 많은 행을 지우면서 락을 오래 잡는 일이 없다.
+ */
+@Slf4j
+@Component
+public class MemberPurgeJob {
+
+    private final MemberRepository memberRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public MemberPurgeJob(MemberRepository memberRepository,
+                          TransactionTemplate transactionTemplate,
+                          @Value("${datajpa.purge.chunk-size:1000}") int chunkSize) {
+        this.memberRepository = memberRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(cron = "${datajpa.purge.cron:0 0 4 * * *}")
+    public void run() {
+        long purged = purge();
+        log.info("purged {} soft-deleted members", purged);
+    }
+
+    public long purge() {
+        long total = 0;
+        while (true) {
+            Integer deleted = transactionTemplate.execute(status -> memberRepository.purgeDeleted(chunkSize));
+            total += deleted;
+            if (deleted < chunkSize) {
+                return total;
+            }
+        }
+    }
+}
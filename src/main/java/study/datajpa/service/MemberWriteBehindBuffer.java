@@ -0,0 +1,214 @@
+package study.datajpa.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.stats.TeamStatsReconciler;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 자주 바뀌는 회원 나이를 메모리에 모아두었다가 주기적으로 batch update 하는 쓰기 지연(write-behind) 버퍼.
+ * 같은 회원에 대한 변경은 ConcurrentHashMap.merge로 하나로 합쳐지므로 N번 바꿔도 flush 때 UPDATE는 한 번이다.
+ *
+ * 내구성 범위
+ *   - 변경은 저널(WriteBehindJournal)에 먼저 남기므로 프로세스가 죽어도 재시작 때 복구된다.
+ *   - batch update와 같은 트랜잭션에서 반영한 세그먼트 번호를 write_behind_watermark에 남기므로 복구 때 한 번만 반영된다.
+ *   - flush-interval-ms마다, 또는 쌓인 회원 수가 max-pending-members를 넘으면 DB에 반영된다.
+ *
+ * 주의
+ *   - 엔티티를 거치지 않고 JDBC로 바로 update 하므로 이미 영속성 컨텍스트에 올라와 있는 Member에는 반영되지 않는다.
+ *   - flush 전까지 DB에서 읽으면 이전 값이 보인다.
+ *   - JDBC로 update 해도 TableWriteListener가 SQL을 보므로 쿼리 결과 캐시(@CachedQuery)는 flush가 커밋될 때 무효화된다.
+ *   - 저널 디렉토리는 애플리케이션 인스턴스마다 달라야 하므로 기본으로 꺼져 있다. (datajpa.write-behind.enabled)
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "datajpa.write-behind.enabled", havingValue = "true")
+public class MemberWriteBehindBuffer {
+
+    private static final String SET_SQL = "update member set age = ?, last_modified_date = ? where member_id = ?";
+    private static final String ADD_SQL = "update member set age = age + ?, last_modified_date = ? where member_id = ?";
+    private static final String WATERMARK_SQL = "select flushed_segment from write_behind_watermark where journal_dir = ?";
+    private static final String MERGE_WATERMARK_SQL = "merge into write_behind_watermark (journal_dir, flushed_segment) key (journal_dir) values (?, ?)";
+
+    private final ConcurrentHashMap<Long, PendingMemberUpdate> pending = new ConcurrentHashMap<>();
+    //버퍼에 쓰는 쪽은 read lock(서로 막지 않음), flush가 저널 세그먼트를 바꾸고 버퍼를 비우는 순간만 write lock
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TeamStatsReconciler teamStatsReconciler;
+    private final Path journalDirectory;
+    private final boolean fsync;
+    private final int maxPendingMembers;
+    private WriteBehindJournal journal;
+
+    private final LongAdder bufferedUpdates = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+
+    public MemberWriteBehindBuffer(JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   TeamStatsReconciler teamStatsReconciler,
+                                   @Value("${datajpa.write-behind.journal-dir:${java.io.tmpdir}/datajpa-write-behind}") String journalDirectory,
+                                   @Value("${datajpa.write-behind.fsync:false}") boolean fsync,
+                                   @Value("${datajpa.write-behind.max-pending-members:10000}") int maxPendingMembers) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.teamStatsReconciler = teamStatsReconciler;
+        this.journalDirectory = Paths.get(journalDirectory);
+        this.fsync = fsync;
+        this.maxPendingMembers = maxPendingMembers;
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        List<Long> flushed = jdbcTemplate.queryForList(WATERMARK_SQL, Long.class, journalKey());
+        journal = new WriteBehindJournal(journalDirectory, fsync, flushed.isEmpty() ? -1 : flushed.get(0));
+        Map<Long, PendingMemberUpdate> recovered = journal.recover();
+        pending.putAll(recovered);
+        if (!recovered.isEmpty()) {
+            log.info("recovered {} pending member updates from {}", recovered.size(), journalDirectory);
+        }
+    }
+
+    public void addAge(long memberId, int delta) {
+        buffer(memberId, PendingMemberUpdate.addAge(delta));
+    }
+
+    public void setAge(long memberId, int age) {
+        buffer(memberId, PendingMemberUpdate.setAge(age));
+    }
+
+    private void buffer(long memberId, PendingMemberUpdate update) {
+        swapLock.readLock().lock();
+        try {
+            //같은 회원의 변경은 저널에 쓴 순서대로 합쳐져야 재시작 때 복구한 값과 같다. (compute는 키마다 직렬화됨)
+            pending.compute(memberId, (id, current) -> {
+                journal.append(id, update);
+                return current == null ? update : current.then(update);
+            });
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        bufferedUpdates.increment();
+        if (pending.size() >= maxPendingMembers && flushLock.tryLock()) { //이미 다른 스레드가 flush 중이면 기다리지 않는다.
+            try {
+                flushLocked();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${datajpa.write-behind.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushLocked() {
+        Map<Long, PendingMemberUpdate> drained;
+        long segment;
+        swapLock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            drained = new HashMap<>(pending);
+            pending.clear();
+            segment = journal.rotate();
+        } catch (IOException e) {
+            throw new IllegalStateException("write-behind journal rotation failed", e);
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        try {
+            write(drained, segment);
+        } catch (RuntimeException e) {
+            //실패한 변경은 그 사이 들어온 변경보다 먼저 일어난 것이므로 앞에 붙여서 되돌려 놓는다. 저널 세그먼트도 지우지 않는다.
+            drained.forEach((id, older) -> pending.merge(id, older, (newer, old) -> old.then(newer)));
+            throw e;
+        }
+
+        try {
+            journal.deleteUpTo(segment);
+        } catch (IOException e) {
+            log.warn("failed to delete flushed write-behind journal segments up to {}", segment, e);
+        }
+    }
+
+    //segment까지의 변경을 반영하고, 같은 트랜잭션에서 watermark를 segment로 올린다.
+    private void write(Map<Long, PendingMemberUpdate> updates, long segment) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now()); //벌크 update라 Auditing이 동작하지 않으므로 직접 갱신 (변경 피드)
+        List<Object[]> sets = new ArrayList<>();
+        List<Object[]> adds = new ArrayList<>();
+        updates.forEach((id, update) -> {
+            if (update.isAbsolute()) {
+                sets.add(new Object[]{update.getAge() + update.getDelta(), now, id});
+            } else if (update.getDelta() != 0) {
+                adds.add(new Object[]{update.getDelta(), now, id});
+            }
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sets.isEmpty()) {
+                jdbcTemplate.batchUpdate(SET_SQL, sets);
+            }
+            if (!adds.isEmpty()) {
+                jdbcTemplate.batchUpdate(ADD_SQL, adds);
+            }
+            jdbcTemplate.update(MERGE_WATERMARK_SQL, journalKey(), segment);
+            teamStatsReconciler.requestReconcile(); //나이 합계(TeamStats)는 커밋 후 다시 계산
+        });
+        flushedRows.add(sets.size() + adds.size());
+    }
+
+    private String journalKey() {
+        return journalDirectory.toAbsolutePath().normalize().toString();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            journal.close();
+        }
+    }
+
+    public int pendingMembers() {
+        return pending.size();
+    }
+
+    public long bufferedUpdates() {
+        return bufferedUpdates.sum();
+    }
+
+    public long flushedRows() {
+        return flushedRows.sum();
+    }
+}
@@ -0,0 +1,42 @@
+package study.datajpa.service;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 아직 DB에 반영하지 않은 회원 한 명의 변경. 같은 회원에 대한 변경은 then()으로 하나로 합쳐진다.
+ *   - age가 null이면 현재 값에 delta를 더하고
+ *   - age가 있으면 age + delta로 덮어쓴다.
+ */
+@Getter
+@ToString
+public final class PendingMemberUpdate {
+
+    private final Integer age;
+    private final int delta;
+
+    private PendingMemberUpdate(Integer age, int delta) {
+        this.age = age;
+        this.delta = delta;
+    }
+
+    public static PendingMemberUpdate addAge(int delta) {
+        return new PendingMemberUpdate(null, delta);
+    }
+
+    public static PendingMemberUpdate setAge(int age) {
+        return new PendingMemberUpdate(age, 0);
+    }
+
+    public boolean isAbsolute() {
+        return age != null;
+    }
+
+    //this 다음에 next가 일어난 것과 같은 변경
+    public PendingMemberUpdate then(PendingMemberUpdate next) {
+        if (next.isAbsolute()) {
+            return next;
+        }
+        return new PendingMemberUpdate(age, delta + next.delta);
+    }
+}
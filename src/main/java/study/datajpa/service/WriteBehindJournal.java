@@ -0,0 +1,146 @@
+package study.datajpa.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * 쓰기 지연 버퍼의 로컬 저널. 버퍼에 넣기 전에 변경을 파일에 먼저 남겨서, 프로세스가 죽어도 재시작 때 다시 채울 수 있다.
+ *   - 레코드는 고정 길이(memberId 8 + type 1 + value 4)라서 쓰다 만 마지막 레코드는 그냥 버린다.
+ *   - flush 할 때마다 새 세그먼트로 넘어가고(rotate), DB 반영이 끝난 세그먼트는 지운다.
+ *   - 어디까지 반영했는지(flushedSegment)는 batch update와 같은 트랜잭션으로 DB에 남긴다. (MemberWriteBehindBuffer)
+ *     반영 후 세그먼트를 지우기 전에 죽어도 recover가 그 세그먼트를 건너뛰므로 상대값(ADD)이 두 번 더해지지 않는다.
+ *   - fsync가 꺼져 있으면 OS 페이지 캐시에만 남으므로 프로세스 장애는 견디지만 OS 장애 시에는 최근 변경을 잃을 수 있다.
+ */
+public class WriteBehindJournal {
+
+    private static final int RECORD_SIZE = Long.BYTES + 1 + Integer.BYTES;
+    private static final byte ADD = 0;
+    private static final byte SET = 1;
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final boolean fsync;
+    private final long flushedSegment;
+    private volatile FileChannel current;
+    private volatile long currentSegment;
+
+    public WriteBehindJournal(Path directory, boolean fsync) throws IOException {
+        this(directory, fsync, -1);
+    }
+
+    /**
+     * @param flushedSegment DB에 반영이 끝난 마지막 세그먼트 번호 (없으면 -1). 세그먼트 번호는 이보다 커지도록 이어서 매긴다.
+     */
+    public WriteBehindJournal(Path directory, boolean fsync, long flushedSegment) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.flushedSegment = flushedSegment;
+        Files.createDirectories(directory);
+        List<Long> segments = segments();
+        long next = segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1;
+        currentSegment = Math.max(next, flushedSegment + 1);
+        current = open(currentSegment);
+    }
+
+    public void append(long memberId, PendingMemberUpdate update) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.putLong(memberId);
+        record.put(update.isAbsolute() ? SET : ADD);
+        record.putInt(update.isAbsolute() ? update.getAge() : update.getDelta());
+        record.flip();
+        try {
+            FileChannel channel = current;
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 새 세그먼트로 넘어가고 닫힌 세그먼트 번호를 돌려준다. append와 동시에 호출되면 안 된다. (버퍼의 write lock 안에서 호출)
+     */
+    public long rotate() throws IOException {
+        FileChannel closing = current;
+        long closed = currentSegment;
+        current = open(closed + 1);
+        currentSegment = closed + 1;
+        closing.force(false);
+        closing.close();
+        return closed;
+    }
+
+    //segment 이하의 세그먼트는 DB에 모두 반영되었다.
+    public void deleteUpTo(long segment) throws IOException {
+        for (Long id : segments()) {
+            if (id <= segment) {
+                Files.deleteIfExists(path(id));
+            }
+        }
+    }
+
+    /**
+     * 남아있는 세그먼트를 순서대로 읽어 회원별로 합친 변경. 세그먼트는 다음 flush가 성공한 뒤에 지워진다.
+     * flushedSegment 이하는 이미 DB에 반영되었으므로 읽지 않고 지운다.
+     */
+    public Map<Long, PendingMemberUpdate> recover() throws IOException {
+        Map<Long, PendingMemberUpdate> recovered = new LinkedHashMap<>();
+        for (Long id : segments()) {
+            if (id == currentSegment) {
+                continue;
+            }
+            if (id <= flushedSegment) {
+                Files.deleteIfExists(path(id));
+                continue;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path(id)));
+            while (buffer.remaining() >= RECORD_SIZE) {
+                long memberId = buffer.getLong();
+                byte type = buffer.get();
+                int value = buffer.getInt();
+                PendingMemberUpdate update = type == SET ? PendingMemberUpdate.setAge(value) : PendingMemberUpdate.addAge(value);
+                recovered.merge(memberId, update, PendingMemberUpdate::then);
+            }
+        }
+        return recovered;
+    }
+
+    public void close() throws IOException {
+        current.close();
+    }
+
+    private FileChannel open(long segment) throws IOException {
+        return FileChannel.open(path(segment), CREATE, WRITE, APPEND);
+    }
+
+    private Path path(long segment) {
+        return directory.resolve(PREFIX + segment + SUFFIX);
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .map(name -> Long.valueOf(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+}
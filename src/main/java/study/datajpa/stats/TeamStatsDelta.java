@@ -0,0 +1,40 @@
+package study.datajpa.stats;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 한 트랜잭션(세션) 동안 모인 팀별 변화량. 커밋 직전에 한 번에 반영한다.
+ * 팀 id 순서(TreeMap)로 반영해서 두 트랜잭션이 서로 다른 순서로 행 락을 잡지 않게 한다. (데드락 방지)
+ */
+class TeamStatsDelta {
+
+    private final Map<Long, long[]> changes = new TreeMap<>(); //team_id -> {회원 수 변화, 나이 합 변화}
+    private final Set<Long> removedTeams = new TreeSet<>();
+
+    void add(Long teamId, long memberCount, long ageSum) {
+        long[] change = changes.computeIfAbsent(teamId, id -> new long[2]);
+        change[0] += memberCount;
+        change[1] += ageSum;
+    }
+
+    //새 팀도 빈 통계 행이 생기도록 0, 0으로 기록해둔다.
+    void touch(Long teamId) {
+        add(teamId, 0, 0);
+    }
+
+    void remove(Long teamId) {
+        changes.remove(teamId);
+        removedTeams.add(teamId);
+    }
+
+    Map<Long, long[]> getChanges() {
+        return changes;
+    }
+
+    Set<Long> getRemovedTeams() {
+        return removedTeams;
+    }
+}
@@ -0,0 +1,134 @@
+package study.datajpa.stats;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.support.PendingChangesListener;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Map;
+
+/**
+ * Member insert / update(나이, 팀 변경(changeTeam), soft delete) / delete 마다 team_stats를 증분으로 맞춘다.
+ *   - flush 때 Hibernate 이벤트로 변화량만 모아두고 (세션마다 TeamStatsDelta 하나)
+ *   - 커밋 직전(BeforeTransactionCompletionProcess)에 팀 id 순서로 한 번에 반영한다. 같은 트랜잭션이므로 회원 변경과 함께 커밋/롤백된다.
+ * 엔티티 이벤트가 없는 벌크 연산(@Modifying, JDBC, StatelessSession)은 TeamStatsReconciler가 다시 계산한다.
+ * 같은 트랜잭션 안에서는 커밋 전까지 team_stats에 자기 변경이 보이지 않는다.
+ */
+@Component
+public class TeamStatsListener extends PendingChangesListener<TeamStatsDelta> {
+
+    private static final String UPDATE_SQL = "update team_stats set member_count = member_count + ?, age_sum = age_sum + ? where team_id = ?";
+    //행이 없는 팀은 변화량이 아니라 member 테이블에서 계산한 값으로 넣는다. (이 트랜잭션의 변경은 이미 flush 되어 있다)
+    private static final String INSERT_SQL = "insert into team_stats (team_id, member_count, age_sum)" +
+            " select ?, count(m.member_id), coalesce(sum(m.age), 0) from member m where m.team_id = ? and m.deleted = false";
+    private static final String DELETE_SQL = "delete from team_stats where team_id = ?";
+
+    private final TeamStatsReconciler reconciler;
+
+    public TeamStatsListener(EntityManagerFactory emf, TeamStatsReconciler reconciler) {
+        super(emf);
+        this.reconciler = reconciler;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            add(event.getSession(), event.getPersister(), event.getState(), 1);
+        } else if (event.getEntity() instanceof Team) {
+            pending(event.getSession()).touch((Long) event.getId());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member)) {
+            return;
+        }
+        Object[] oldState = event.getOldState();
+        if (oldState == null) { //이전 값을 모르면 (detached 엔티티 update 등) 다시 계산
+            reconciler.requestReconcile();
+            return;
+        }
+        add(event.getSession(), event.getPersister(), oldState, -1);
+        add(event.getSession(), event.getPersister(), event.getState(), 1);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        //Member는 @SQLDelete라 실제로는 deleted = true로 바뀌지만 통계에서 빠지는 것은 같다.
+        if (event.getEntity() instanceof Member) {
+            add(event.getSession(), event.getPersister(), event.getDeletedState(), -1);
+        } else if (event.getEntity() instanceof Team) {
+            pending(event.getSession()).remove((Long) event.getId());
+        }
+    }
+
+    //state(이벤트의 프로퍼티 값 배열)에 해당하는 회원을 sign(+1 / -1)만큼 팀 통계에 더한다.
+    private void add(EventSource session, EntityPersister persister, Object[] state, int sign) {
+        Team team = (Team) state[persister.getEntityMetamodel().getPropertyIndex("team")];
+        boolean deleted = (Boolean) state[persister.getEntityMetamodel().getPropertyIndex("deleted")];
+        if (team == null || deleted) {
+            return;
+        }
+        int age = (Integer) state[persister.getEntityMetamodel().getPropertyIndex("age")];
+        pending(session).add(team.getId(), sign, (long) sign * age); //프록시여도 getId는 초기화하지 않는다.
+    }
+
+    @Override
+    protected TeamStatsDelta newPending() {
+        return new TeamStatsDelta();
+    }
+
+    @Override
+    protected void beforeCommit(SessionImplementor session, TeamStatsDelta delta) {
+        session.doWork(connection -> apply(connection, delta));
+    }
+
+    private static void apply(Connection connection, TeamStatsDelta delta) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement(DELETE_SQL)) {
+            for (Long teamId : delta.getRemovedTeams()) {
+                delete.setLong(1, teamId);
+                delete.executeUpdate();
+            }
+        }
+        for (Map.Entry<Long, long[]> entry : delta.getChanges().entrySet()) {
+            long teamId = entry.getKey();
+            long[] change = entry.getValue();
+            if (update(connection, teamId, change) == 0) {
+                insert(connection, teamId, change);
+            }
+        }
+    }
+
+    private static int update(Connection connection, long teamId, long[] change) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(UPDATE_SQL)) {
+            ps.setLong(1, change[0]);
+            ps.setLong(2, change[1]);
+            ps.setLong(3, teamId);
+            return ps.executeUpdate();
+        }
+    }
+
+    /**
+     * 통계 행이 아직 없는 팀. (TeamStats가 생기기 전에 만든 팀, JDBC로 넣은 팀 등)
+     * 변화량만 넣으면 기존 회원이 빠진 값이 되므로 member에서 계산해서 넣는다.
+     * 다른 트랜잭션이 먼저 넣었으면 그 값에는 이 트랜잭션의 변경이 없으므로 update로 변화량을 더한다.
+     */
+    private static void insert(Connection connection, long teamId, long[] change) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+            ps.setLong(1, teamId);
+            ps.setLong(2, teamId);
+            ps.executeUpdate();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            update(connection, teamId, change);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package study.datajpa.stats;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.stereotype.Component;
+import study.datajpa.repository.MemberJpaRepository;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.search.UsernameSearchIndex;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+
+/**
+ * 회원을 바꾸는 벌크 연산(MemberRepository의 @Modifying 메서드, MemberJpaRepository.bulkAgePlus / deleteById)이 끝나면
+ * TeamStatsReconciler에 재계산을 요청한다. 실제 재계산은 트랜잭션이 커밋된 다음에 한다.
+ * 그중 회원을 지우는 연산(softDeleteById, deleteById)은 UsernameSearchIndex에도 다시 만들라고 요청한다. (엔티티 이벤트가 없으므로)
+ */
+@Aspect
+@Component
+public class TeamStatsReconcileTrigger {
+
+    private static final Set<String> MEMBER_DELETES = Set.of("softDeleteById", "deleteById");
+
+    private final TeamStatsReconciler reconciler;
+    private final UsernameSearchIndex usernameSearchIndex;
+
+    public TeamStatsReconcileTrigger(TeamStatsReconciler reconciler, UsernameSearchIndex usernameSearchIndex) {
+        this.reconciler = reconciler;
+        this.usernameSearchIndex = usernameSearchIndex;
+    }
+
+    @Around("study.datajpa.monitor.RepositoryPointcuts.repositoryMethods()")
+    public Object trigger(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object result = joinPoint.proceed();
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        if (isBulkMemberUpdate(method)) {
+            reconciler.requestReconcile();
+            if (MEMBER_DELETES.contains(method.getName())) {
+                usernameSearchIndex.requestRebuild();
+            }
+        }
+        return result;
+    }
+
+    private static boolean isBulkMemberUpdate(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        if (declaringClass == MemberRepository.class) {
+            return method.isAnnotationPresent(Modifying.class);
+        }
+        if (declaringClass == MemberJpaRepository.class) {
+            return method.getName().equals("bulkAgePlus") || method.getName().equals("deleteById");
+        }
+        return false;
+    }
+}
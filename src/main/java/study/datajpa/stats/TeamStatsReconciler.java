@@ -0,0 +1,71 @@
+package study.datajpa.stats;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.support.CoalescedRequest;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 엔티티 이벤트 없이 회원을 바꾸는 벌크 연산(bulkAgePlus, softDeleteById, 쓰기 지연 버퍼, StatelessSession, import) 뒤에
+ * team_stats를 member 테이블에서 다시 계산한다.
+ *   - requestReconcile()은 표시만 해두고 (트랜잭션 중이면 커밋된 뒤에) reconcile-delay-ms마다 도는 작업이 한 번에 처리한다.
+ *     그래서 벌크 연산이 여러 번 있어도 재계산은 한 번이고, 그 사이(최대 reconcile-delay-ms) 통계는 이전 값일 수 있다.
+ *   - 먼저 team_stats 행을 모두 잠근 다음 계산하므로, 진행 중인 증분 트랜잭션은 커밋을 기다렸다가 반영하고
+ *     이후 트랜잭션은 재계산이 끝난 값 위에 더한다. (READ COMMITTED에서 증분이 덮어써지지 않음)
+ *   - 시작할 때 한 번 계산한다. 꺼져 있는 동안의 변경이나 TeamStats가 생기기 전 데이터도 맞춰진다.
+ */
+@Slf4j
+@Component
+public class TeamStatsReconciler {
+
+    private static final String LOCK_SQL = "select team_id from team_stats for update";
+    private static final String MERGE_SQL = "merge into team_stats (team_id, member_count, age_sum) key (team_id)" +
+            " select t.team_id, count(m.member_id), coalesce(sum(m.age), 0) from team t" +
+            " left join member m on m.team_id = t.team_id and m.deleted = false" +
+            " group by t.team_id";
+    private static final String DELETE_ORPHANS_SQL = "delete from team_stats s where not exists (select 1 from team t where t.team_id = s.team_id)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CoalescedRequest requested = new CoalescedRequest();
+    private final LongAdder reconciliations = new LongAdder();
+
+    public TeamStatsReconciler(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public void requestReconcile() {
+        requested.request();
+    }
+
+    @Scheduled(fixedDelayString = "${datajpa.team-stats.reconcile-delay-ms:1000}")
+    public void reconcileIfRequested() {
+        requested.runIfRequested(this::reconcile);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForList(LOCK_SQL, Long.class);
+            int merged = jdbcTemplate.update(MERGE_SQL);
+            int removed = jdbcTemplate.update(DELETE_ORPHANS_SQL);
+            log.debug("team_stats reconciled: {} teams, {} orphan rows removed", merged, removed);
+        });
+        reconciliations.increment();
+    }
+
+    public boolean isRequested() {
+        return requested.isRequested();
+    }
+
+    public long reconciliations() {
+        return reconciliations.sum();
+    }
+}
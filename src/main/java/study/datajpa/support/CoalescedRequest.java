@@ -0,0 +1,46 @@
+package study.datajpa.support;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * "나중에 한 번 다시 계산해라" 표시. (TeamStatsReconciler, UsernameSearchIndex)
+ *   - request()는 표시만 한다. 트랜잭션 중이면 커밋된 뒤에 표시하고, 롤백되면 표시하지 않는다.
+ *   - 주기 작업이 runIfRequested()로 처리한다. 그 사이에 여러 번 요청해도 한 번만 실행한다.
+ *   - 실행이 실패하면 다시 표시해서 다음 주기에 재시도한다.
+ */
+public class CoalescedRequest {
+
+    private final AtomicBoolean requested = new AtomicBoolean();
+
+    public void request() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            requested.set(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                requested.set(true);
+            }
+        });
+    }
+
+    public boolean isRequested() {
+        return requested.get();
+    }
+
+    public void runIfRequested(Runnable task) {
+        if (!requested.getAndSet(false)) {
+            return;
+        }
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            requested.set(true); //다음 주기에 다시
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package study.datajpa.support;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 엔티티 insert / update / delete 이벤트를 세션(트랜잭션)마다 T 하나에 모아뒀다가 트랜잭션이 끝날 때 처리하는 리스너.
+ * (TeamStatsListener, UsernameIndexListener)
+ *   - beforeCommit: 커밋 직전, 같은 트랜잭션 안에서. 여기서 쓰면 엔티티 변경과 함께 커밋/롤백된다.
+ *   - afterCommit: 커밋이 성공한 뒤에. 롤백되면 모은 것을 버린다.
+ */
+public abstract class PendingChangesListener<T> implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory emf;
+    private final Map<SharedSessionContractImplementor, T> pending = new ConcurrentHashMap<>();
+
+    protected PendingChangesListener(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImpl.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    protected abstract T newPending();
+
+    protected void beforeCommit(SessionImplementor session, T changes) {
+    }
+
+    protected void afterCommit(T changes) {
+    }
+
+    //이 세션에 모으는 중인 변경. 처음 부를 때 트랜잭션 완료 콜백을 등록한다.
+    protected T pending(EventSource session) {
+        return pending.computeIfAbsent(session, s -> {
+            ActionQueue actionQueue = session.getActionQueue();
+            actionQueue.registerProcess((BeforeTransactionCompletionProcess) completing -> {
+                T changes = pending.get(s);
+                if (changes != null) {
+                    beforeCommit(completing, changes);
+                }
+            });
+            actionQueue.registerProcess((AfterTransactionCompletionProcess) (success, completed) -> {
+                T changes = pending.remove(s);
+                if (success && changes != null) {
+                    afterCommit(changes);
+                }
+            });
+            return newPending();
+        });
+    }
+}
@@ -0,0 +1,188 @@
+package study.datajpa.transfer;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * BinaryTableWriter로 쓴 파일을 한 행씩 읽는다.
+ * memoryMapped면 파일을 구간(window) 단위로 mmap 해서 읽고, 아니면 일반 채널 읽기로 버퍼를 채운다.
+ * position()은 파일 내 절대 위치라서 체크포인트에 저장해두었다가 seek()로 이어 읽을 수 있다.
+ */
+public class BinaryTableReader implements Closeable {
+
+    private static final int WINDOW_SIZE = 64 << 20;
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+
+    private final TransferTable table;
+    private final FileChannel channel;
+    private final boolean memoryMapped;
+    private final long size;
+    private final long dataStart;
+
+    private ByteBuffer window;
+    private long windowStart;
+
+    public BinaryTableReader(TransferTable table, Path file, boolean memoryMapped) throws IOException {
+        this.table = table;
+        this.channel = FileChannel.open(file, READ);
+        this.memoryMapped = memoryMapped;
+        this.size = channel.size();
+        this.window = memoryMapped ? ByteBuffer.allocate(0) : ByteBuffer.allocate(READ_BUFFER_SIZE).flip();
+        readHeader();
+        this.dataStart = position();
+    }
+
+    private void readHeader() throws IOException {
+        ensure(Integer.BYTES + Short.BYTES);
+        if (window.getInt() != BinaryTableWriter.MAGIC) {
+            throw new IOException("not a data-jpa export file");
+        }
+        short version = window.getShort();
+        if (version != BinaryTableWriter.VERSION) {
+            throw new IOException("unsupported version: " + version);
+        }
+        String tableName = readString();
+        ensure(Short.BYTES);
+        short columnCount = window.getShort();
+        if (!tableName.equals(table.getTableName()) || columnCount != table.getColumns().size()) {
+            throw new IOException("file is for table " + tableName + " (" + columnCount + " columns), expected " + table.getTableName());
+        }
+        for (TransferColumn column : table.getColumns()) {
+            String name = readString();
+            ensure(1);
+            byte type = window.get();
+            if (!name.equals(column.getName()) || type != column.getType().ordinal()) {
+                throw new IOException("column mismatch: " + name + " (" + type + "), expected " + column.getName());
+            }
+        }
+    }
+
+    public long position() {
+        return windowStart + window.position();
+    }
+
+    public long dataStart() {
+        return dataStart;
+    }
+
+    public void seek(long position) throws IOException {
+        if (position < dataStart || position > size) {
+            throw new IOException("invalid position: " + position);
+        }
+        windowStart = position;
+        if (memoryMapped) {
+            window = ByteBuffer.allocate(0);
+        } else {
+            channel.position(position);
+            window.clear().flip();
+        }
+    }
+
+    /**
+     * 다음 행의 컬럼 값들. 더 이상 행이 없으면 null
+     */
+    public Object[] next() throws IOException {
+        ensure(Integer.BYTES);
+        int length = window.getInt();
+        if (length == BinaryTableWriter.END_OF_RECORDS) {
+            return null;
+        }
+        ensure(length);
+        int end = window.position() + length;
+        Object[] values = new Object[table.getColumns().size()];
+        int index = 0;
+        for (TransferColumn column : table.getColumns()) {
+            values[index++] = window.get() == 1 ? null : readValue(column.getType());
+        }
+        if (window.position() != end) {
+            throw new IOException("corrupted record at " + (windowStart + end - length));
+        }
+        return values;
+    }
+
+    private Object readValue(ColumnType type) {
+        switch (type) {
+            case LONG:
+                return window.getLong();
+            case INT:
+                return window.getInt();
+            case BOOLEAN:
+                return window.get() == 1;
+            case STRING:
+                return readStringInWindow();
+            case TIMESTAMP:
+                long epochSecond = window.getLong();
+                int nano = window.getInt();
+                return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+            default:
+                throw new IllegalStateException("unknown column type: " + type);
+        }
+    }
+
+    private String readString() throws IOException {
+        ensure(Integer.BYTES);
+        int length = window.getInt();
+        ensure(length);
+        return decode(length);
+    }
+
+    //레코드 전체가 이미 window 안에 있을 때
+    private String readStringInWindow() {
+        return decode(window.getInt());
+    }
+
+    private String decode(int length) {
+        String value;
+        if (window.hasArray()) {
+            value = new String(window.array(), window.arrayOffset() + window.position(), length, StandardCharsets.UTF_8);
+            window.position(window.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            window.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    //window에 bytes만큼 읽을 수 있게 만든다.
+    private void ensure(int bytes) throws IOException {
+        if (window.remaining() >= bytes) {
+            return;
+        }
+        long position = position();
+        if (size - position < bytes) {
+            throw new EOFException("unexpected end of file at " + position);
+        }
+        if (memoryMapped) {
+            long length = Math.min(Math.max(WINDOW_SIZE, bytes), size - position);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        } else {
+            if (window.capacity() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(bytes);
+                larger.put(window);
+                window = larger;
+            } else {
+                window.compact();
+            }
+            while (window.position() < bytes && channel.read(window) >= 0) {
+                //필요한 만큼 찰 때까지 읽는다.
+            }
+            window.flip();
+        }
+        windowStart = position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,194 @@
+package study.datajpa.transfer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * 테이블 한 개를 길이 접두(length-prefixed) 바이너리 파일로 쓴다.
+ *
+ * 파일 구조
+ *   header : magic(int) version(short) tableName(string) columnCount(short) [columnName(string) columnType(byte)]...
+ *   record : length(int) [nullFlag(byte) value]...   (length = -1 이면 파일 끝)
+ *   string : byteLength(int) UTF-8 bytes
+ *   timestamp : epochSecond(long, UTC 기준) nano(int)
+ *
+ * 파일 끝 표시(-1)는 complete()를 호출한 뒤 close 할 때만 쓴다. 내보내기가 중간에 실패한 파일은 읽을 때 EOFException이 난다.
+ */
+public class BinaryTableWriter implements Closeable {
+
+    static final int MAGIC = 0x444A5041; //"DJPA"
+    static final short VERSION = 1;
+    static final int END_OF_RECORDS = -1;
+
+    private static final int OUT_BUFFER_SIZE = 1 << 20;
+
+    private final TransferTable table;
+    private final FileChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(OUT_BUFFER_SIZE);
+    private ByteBuffer record = ByteBuffer.allocate(4096); //행 하나를 인코딩하는 버퍼. 모든 행에서 재사용
+    private long count;
+    private boolean completed;
+
+    public BinaryTableWriter(TransferTable table, Path file) throws IOException {
+        this.table = table;
+        this.channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE);
+        writeHeader();
+    }
+
+    private void writeHeader() throws IOException {
+        record.clear();
+        record.putInt(MAGIC);
+        record.putShort(VERSION);
+        putString(table.getTableName());
+        record.putShort((short) table.getColumns().size());
+        for (TransferColumn column : table.getColumns()) {
+            putString(column.getName());
+            record.put((byte) column.getType().ordinal());
+        }
+        record.flip();
+        write(record);
+    }
+
+    public void write(ResultSet rs) throws SQLException, IOException {
+        record.clear();
+        int index = 1;
+        for (TransferColumn column : table.getColumns()) {
+            putColumn(column.getType(), rs, index++);
+        }
+        record.flip();
+
+        ensureOut(Integer.BYTES);
+        out.putInt(record.remaining());
+        write(record);
+        count++;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    //모든 행을 썼다. close 할 때 파일 끝 표시를 남긴다.
+    public void complete() {
+        completed = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (completed) {
+                ensureOut(Integer.BYTES);
+                out.putInt(END_OF_RECORDS);
+            }
+            flushOut();
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void putColumn(ColumnType type, ResultSet rs, int index) throws SQLException {
+        switch (type) {
+            case LONG: {
+                long value = rs.getLong(index);
+                if (putNullFlag(rs.wasNull())) {
+                    ensureRecord(Long.BYTES);
+                    record.putLong(value);
+                }
+                break;
+            }
+            case INT: {
+                int value = rs.getInt(index);
+                if (putNullFlag(rs.wasNull())) {
+                    ensureRecord(Integer.BYTES);
+                    record.putInt(value);
+                }
+                break;
+            }
+            case BOOLEAN: {
+                boolean value = rs.getBoolean(index);
+                if (putNullFlag(rs.wasNull())) {
+                    ensureRecord(1);
+                    record.put(value ? (byte) 1 : (byte) 0);
+                }
+                break;
+            }
+            case STRING: {
+                String value = rs.getString(index);
+                if (putNullFlag(value == null)) {
+                    putString(value);
+                }
+                break;
+            }
+            case TIMESTAMP: {
+                LocalDateTime value = rs.getObject(index, LocalDateTime.class);
+                if (putNullFlag(value == null)) {
+                    ensureRecord(Long.BYTES + Integer.BYTES);
+                    record.putLong(value.toEpochSecond(ZoneOffset.UTC));
+                    record.putInt(value.getNano());
+                }
+                break;
+            }
+            default:
+                throw new IllegalStateException("unknown column type: " + type);
+        }
+    }
+
+    //값이 있으면 true
+    private boolean putNullFlag(boolean isNull) {
+        ensureRecord(1);
+        record.put(isNull ? (byte) 1 : (byte) 0);
+        return !isNull;
+    }
+
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureRecord(Integer.BYTES + bytes.length);
+        record.putInt(bytes.length);
+        record.put(bytes);
+    }
+
+    private void ensureRecord(int bytes) {
+        if (record.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + bytes));
+            record.flip();
+            larger.put(record);
+            record = larger;
+        }
+    }
+
+    private void write(ByteBuffer src) throws IOException {
+        if (src.remaining() > out.capacity()) {
+            flushOut();
+            while (src.hasRemaining()) {
+                channel.write(src);
+            }
+            return;
+        }
+        ensureOut(src.remaining());
+        out.put(src);
+    }
+
+    private void ensureOut(int bytes) throws IOException {
+        if (out.remaining() < bytes) {
+            flushOut();
+        }
+    }
+
+    private void flushOut() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+}
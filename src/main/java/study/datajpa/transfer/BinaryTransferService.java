@@ -0,0 +1,133 @@
+package study.datajpa.transfer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.repository.IdSequences;
+import study.datajpa.search.UsernameSearchIndex;
+import study.datajpa.stats.TeamStatsReconciler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Team / Member / Item 테이블을 바이너리 파일로 내보내고 가져온다.
+ * 엔티티를 거치지 않고 JDBC ResultSet -> 파일, 파일 -> JDBC batch insert로 바로 옮긴다.
+ *   - 가져오기는 배치마다 트랜잭션을 커밋하고 체크포인트를 남기므로, 중간에 실패하면 같은 호출로 이어서 가져온다.
+ *     끝난 테이블은 done 체크포인트로 남겨 건너뛰고, 체크포인트는 importAll이 모두 끝난 뒤에 지운다.
+ *   - 이어서 가져올 때 첫 배치는 MERGE로 넣는다. 커밋 후 체크포인트를 쓰기 전에 죽었으면 그 배치가 이미 들어가 있기 때문
+ *   - 가져올 테이블은 비어 있어야 한다. (id를 그대로 넣는다)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BinaryTransferService {
+
+    private static final int FETCH_SIZE = 1000;
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TeamStatsReconciler teamStatsReconciler;
+    private final UsernameSearchIndex usernameSearchIndex;
+
+    public void exportAll(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (TransferTable table : TransferTable.values()) {
+            export(table, directory.resolve(table.fileName()));
+        }
+    }
+
+    public void importAll(Path directory, boolean memoryMapped) throws IOException {
+        for (TransferTable table : TransferTable.values()) {
+            importTable(table, directory.resolve(table.fileName()), memoryMapped);
+        }
+        IdSequences.advancePastExistingIds(jdbcTemplate);
+        for (TransferTable table : TransferTable.values()) {
+            ImportCheckpoint.delete(directory.resolve(table.fileName()));
+        }
+    }
+
+    public long export(TransferTable table, Path file) throws IOException {
+        try (BinaryTableWriter writer = new BinaryTableWriter(table, file)) {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(table.selectSql());
+                ps.setFetchSize(FETCH_SIZE);
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                try {
+                    writer.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.complete();
+            log.info("exported {} rows from {}", writer.getCount(), table.getTableName());
+            return writer.getCount();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 끝나면 done 체크포인트를 남긴다. 같은 파일을 다시 가져오려면 ImportCheckpoint.delete로 지운다.
+     */
+    public long importTable(TransferTable table, Path file, boolean memoryMapped) throws IOException {
+        ImportCheckpoint checkpoint = ImportCheckpoint.read(file);
+        if (checkpoint != null && checkpoint.isDone()) {
+            log.info("skipping {}, already imported {} rows", table.getTableName(), checkpoint.getRecords());
+            return checkpoint.getRecords();
+        }
+        try (BinaryTableReader reader = new BinaryTableReader(table, file, memoryMapped)) {
+            long records = 0;
+            String sql = table.insertSql();
+            if (checkpoint != null) {
+                reader.seek(checkpoint.getPosition());
+                records = checkpoint.getRecords();
+                sql = table.mergeSql(); //체크포인트 다음 배치가 이미 커밋되었을 수 있다.
+                log.info("resuming import of {} at record {}", table.getTableName(), records);
+            } else {
+                //첫 배치가 커밋된 뒤 죽어도 이어서 가져오도록 시작 위치를 먼저 남긴다.
+                new ImportCheckpoint(0, reader.dataStart()).write(file);
+            }
+
+            List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+            Object[] row;
+            while ((row = reader.next()) != null) {
+                batch.add(row);
+                if (batch.size() == BATCH_SIZE) {
+                    records += insert(sql, batch);
+                    new ImportCheckpoint(records, reader.position()).write(file);
+                    sql = table.insertSql();
+                }
+            }
+            if (!batch.isEmpty()) {
+                records += insert(sql, batch);
+            }
+            new ImportCheckpoint(records, reader.position(), true).write(file);
+            if (table == TransferTable.TEAM || table == TransferTable.MEMBER) {
+                teamStatsReconciler.requestReconcile(); //JDBC로 넣었으므로 TeamStats는 다시 계산
+            }
+            if (table == TransferTable.MEMBER) {
+                usernameSearchIndex.requestRebuild(); //username 검색 인덱스도 다시 만든다.
+            }
+            log.info("imported {} rows into {}", records, table.getTableName());
+            return records;
+        }
+    }
+
+    private int insert(String sql, List<Object[]> batch) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(sql, batch));
+        int size = batch.size();
+        batch.clear();
+        return size;
+    }
+}
@@ -0,0 +1,5 @@
+package study.datajpa.transfer;
+
+public enum ColumnType {
+    LONG, INT, BOOLEAN, STRING, TIMESTAMP
+}
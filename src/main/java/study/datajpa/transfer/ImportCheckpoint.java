@@ -0,0 +1,71 @@
+package study.datajpa.transfer;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * 가져오기 중간 지점. 배치 하나가 커밋될 때마다 (가져온 행 수, 다음에 읽을 파일 위치)를 기록한다.
+ * 임시 파일에 쓰고 원자적으로 교체하므로 쓰는 도중에 죽어도 이전 체크포인트가 남는다.
+ * 테이블을 끝까지 가져오면 done으로 남겨서, importAll이 다른 테이블에서 실패하고 다시 호출돼도 그 테이블은 건너뛴다.
+ */
+@Getter
+public class ImportCheckpoint {
+
+    private final long records;
+    private final long position;
+    private final boolean done;
+
+    public ImportCheckpoint(long records, long position) {
+        this(records, position, false);
+    }
+
+    public ImportCheckpoint(long records, long position, boolean done) {
+        this.records = records;
+        this.position = position;
+        this.done = done;
+    }
+
+    public static Path pathOf(Path dataFile) {
+        return dataFile.resolveSibling(dataFile.getFileName() + ".checkpoint");
+    }
+
+    public static ImportCheckpoint read(Path dataFile) throws IOException {
+        Path path = pathOf(dataFile);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+        return new ImportCheckpoint(Long.parseLong(properties.getProperty("records")),
+                Long.parseLong(properties.getProperty("position")),
+                Boolean.parseBoolean(properties.getProperty("done")));
+    }
+
+    public void write(Path dataFile) throws IOException {
+        Path path = pathOf(dataFile);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Properties properties = new Properties();
+        properties.setProperty("records", String.valueOf(records));
+        properties.setProperty("position", String.valueOf(position));
+        properties.setProperty("done", String.valueOf(done));
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            properties.store(writer, null);
+        }
+        Files.move(temp, path, ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+
+    public static void delete(Path dataFile) throws IOException {
+        Files.deleteIfExists(pathOf(dataFile));
+    }
+}
@@ -0,0 +1,15 @@
+package study.datajpa.transfer;
+
+import lombok.Getter;
+
+@Getter
+public class TransferColumn {
+
+    private final String name;
+    private final ColumnType type;
+
+    TransferColumn(String name, ColumnType type) {
+        this.name = name;
+        this.type = type;
+    }
+}
@@ -0,0 +1,69 @@
+package study.datajpa.transfer;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static study.datajpa.transfer.ColumnType.*;
+
+/**
+ * 내보내기/가져오기 대상 테이블과 컬럼 정의. 선언 순서가 곧 가져오기 순서다. (member가 team을 참조하므로 team 먼저)
+ */
+@Getter
+public enum TransferTable {
+
+    TEAM("team", "team_id",
+            new TransferColumn("team_id", LONG),
+            new TransferColumn("name", STRING),
+            new TransferColumn("created_date", TIMESTAMP),
+            new TransferColumn("last_modified_date", TIMESTAMP)),
+
+    MEMBER("member", "member_id",
+            new TransferColumn("member_id", LONG),
+            new TransferColumn("username", STRING),
+            new TransferColumn("age", INT),
+            new TransferColumn("team_id", LONG),
+            new TransferColumn("deleted", BOOLEAN),
+            new TransferColumn("created_date", TIMESTAMP),
+            new TransferColumn("last_modified_date", TIMESTAMP),
+            new TransferColumn("created_by", STRING),
+            new TransferColumn("last_modified_by", STRING)),
+
+    ITEM("item", "id",
+            new TransferColumn("id", STRING),
+            new TransferColumn("created_date", TIMESTAMP));
+
+    private final String tableName;
+    private final String idColumn;
+    private final List<TransferColumn> columns;
+
+    TransferTable(String tableName, String idColumn, TransferColumn... columns) {
+        this.tableName = tableName;
+        this.idColumn = idColumn;
+        this.columns = List.of(columns);
+    }
+
+    public String selectSql() {
+        return "select " + columnList() + " from " + tableName + " order by " + idColumn;
+    }
+
+    public String insertSql() {
+        String placeholders = columns.stream().map(c -> "?").collect(Collectors.joining(", "));
+        return "insert into " + tableName + " (" + columnList() + ") values (" + placeholders + ")";
+    }
+
+    //이미 들어간 행은 덮어쓴다. (H2 MERGE ... KEY)
+    public String mergeSql() {
+        String placeholders = columns.stream().map(c -> "?").collect(Collectors.joining(", "));
+        return "merge into " + tableName + " (" + columnList() + ") key (" + idColumn + ") values (" + placeholders + ")";
+    }
+
+    public String fileName() {
+        return tableName + ".djpa";
+    }
+
+    private String columnList() {
+        return columns.stream().map(TransferColumn::getName).collect(Collectors.joining(", "));
+    }
+}
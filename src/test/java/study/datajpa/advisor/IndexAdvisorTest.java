@@ -0,0 +1,73 @@
+package study.datajpa.advisor;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.data.domain.Sort.Direction.DESC;
+
+@Transactional
+@SpringBootTest
+class IndexAdvisorTest {
+
+    //Pageable로 넘어오는 정렬은 메서드 이름에 없으므로 실제 사용하는 정렬을 알려준다. (MemberController, MemberRepositoryTest.paging)
+    static final Map<String, Sort> SORT_USAGES = Map.of(
+            "findByAge", Sort.by(DESC, "username"),
+            "findSliceByAge", Sort.by(DESC, "username"),
+            "findListByAge", Sort.by(DESC, "username"));
+
+    IndexAdvisor advisor = new IndexAdvisor();
+
+    @Autowired EntityManager em;
+
+    @Test
+    public void suggest() throws Exception {
+        List<IndexSuggestion> suggestions = advisor.analyze(MemberRepository.class, SORT_USAGES);
+
+        assertThat(suggestions).extracting(IndexSuggestion::getTable).containsOnly("member");
+        assertThat(suggestions).extracting(IndexSuggestion::getColumns)
+                .contains(List.of("username", "age"), List.of("age", "username"));
+
+        //where age = ? order by username desc -> (age, username), 정렬은 SORT_USAGES에서
+        IndexSuggestion byAge = suggestion(suggestions, "age", "username");
+        assertThat(byAge.getSources()).contains("MemberRepository.findByAge", "MemberRepository.findSliceByAge", "MemberRepository.findListByAge");
+        assertThat(byAge.toAnnotation()).isEqualTo("@Index(name = \"idx_member_age_username\", columnList = \"age, username\")");
+
+        //username = ? and age > ? -> (username, age). 등호 조건이 먼저, 범위 조건이 뒤
+        IndexSuggestion byUsername = suggestion(suggestions, "username", "age");
+        assertThat(byUsername.getSources()).contains("MemberRepository.findByUsernameAndAgeGreaterThan");
+        assertThat(byUsername.getName()).isEqualTo("idx_member_username_age");
+    }
+
+    private static IndexSuggestion suggestion(List<IndexSuggestion> suggestions, String... columns) {
+        return suggestions.stream()
+                .filter(suggestion -> suggestion.getColumns().equals(List.of(columns)))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    //새 finder를 추가하면 인덱스도 같이 추가해야 이 테스트가 통과한다.
+    @Test
+    public void everyFinderHasIndex() throws Exception {
+        assertThat(advisor.findMissing(MemberRepository.class, SORT_USAGES)).isEmpty();
+    }
+
+    @Test
+    public void explain() throws Exception {
+        String byAge = (String) em.createNativeQuery("explain select * from member where age = 10 order by username desc")
+                .getSingleResult();
+        String byUsername = (String) em.createNativeQuery("explain select * from member where username = 'member1' and age > 10")
+                .getSingleResult();
+
+        assertThat(byAge).containsIgnoringCase("idx_member_age_username");
+        assertThat(byUsername).containsIgnoringCase("idx_member_username_age");
+    }
+}
@@ -0,0 +1,121 @@
+package study.datajpa.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//캐시는 커밋된 데이터만 다루므로 트랜잭션 롤백 테스트가 아니라 실제로 커밋하면서 확인한다.
+@SpringBootTest(properties = "datajpa.query-cache.enabled=true") //기본값은 꺼짐 (단일 노드 전용)
+class QueryResultCacheTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired QueryResultCache queryResultCache;
+    @Autowired TableVersions tableVersions;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    @Test
+    public void hitUntilSave() throws Exception {
+        //given
+        long count = memberRepository.count();
+        long hitsBefore = queryResultCache.getStats().getHits();
+
+        //when
+        long cached = memberRepository.count();
+
+        //then
+        assertThat(cached).isEqualTo(count);
+        assertThat(queryResultCache.getStats().getHits()).isEqualTo(hitsBefore + 1);
+
+        //save가 커밋되면 다음 조회는 DB에서 다시 읽는다.
+        memberRepository.save(new Member("cacheMember", 10));
+        assertThat(memberRepository.count()).isEqualTo(count + 1);
+    }
+
+    @Test
+    public void bumpAfterCommitOnly() throws Exception {
+        //given
+        memberRepository.save(new Member("cacheMember", 10));
+        long before = tableVersions.current("member");
+
+        //when
+        transactionTemplate.executeWithoutResult(status -> {
+            memberRepository.bulkAgePlus(0);
+            assertThat(tableVersions.current("member")).isEqualTo(before); //커밋 전에는 그대로
+        });
+
+        //then
+        assertThat(tableVersions.current("member")).isGreaterThan(before);
+    }
+
+    @Test
+    public void rollbackDoesNotBump() throws Exception {
+        long before = tableVersions.current("member");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            memberRepository.bulkAgePlus(0);
+            status.setRollbackOnly();
+        });
+
+        assertThat(tableVersions.current("member")).isEqualTo(before);
+    }
+
+    @Test
+    public void invalidateOnJoinedTable() throws Exception {
+        //given
+        Team team = teamRepository.save(new Team("cacheTeam"));
+        Member member = memberRepository.save(new Member("cacheMember", 10, team));
+        assertThat(memberRepository.findMemberDto())
+                .anyMatch(dto -> dto.getId().equals(member.getId()) && dto.getTeamName().equals("cacheTeam"));
+
+        //when 팀 이름만 바꿔도 (JdbcTemplate으로 바꿔도) findMemberDto 결과는 무효화된다.
+        jdbcTemplate.update("update team set name = ? where team_id = ?", "renamedTeam", team.getId());
+
+        //then
+        assertThat(memberRepository.findMemberDto())
+                .anyMatch(dto -> dto.getId().equals(member.getId()) && dto.getTeamName().equals("renamedTeam"));
+    }
+
+    @Test
+    public void readOwnWritesInTransaction() throws Exception {
+        long count = memberRepository.count(); //캐시에 올려둔다.
+
+        transactionTemplate.executeWithoutResult(status -> {
+            memberRepository.save(new Member("cacheMember", 10));
+            //flush 전(dirty 세션)에도, 커밋 전에도 캐시가 아니라 자기 변경이 보이는 DB 결과를 돌려준다.
+            assertThat(memberRepository.count()).isEqualTo(count + 1);
+            assertThat(memberRepository.findUsernameList()).contains("cacheMember");
+            status.setRollbackOnly();
+        });
+
+        assertThat(memberRepository.count()).isEqualTo(count);
+    }
+
+    @Test
+    public void cachedListIsReadOnly() throws Exception {
+        memberRepository.save(new Member("cacheMember", 10));
+        memberRepository.findUsernameList();
+
+        assertThatThrownBy(() -> memberRepository.findUsernameList().add("other"))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void writtenTable() throws Exception {
+        assertThat(TableWriteListener.writtenTable("insert into member (age, username, member_id) values (?, ?, ?)")).isEqualTo("member");
+        assertThat(TableWriteListener.writtenTable("/* update study.datajpa.entity.Member */ update member set age=? where member_id=?")).isEqualTo("member");
+        assertThat(TableWriteListener.writtenTable("delete from PUBLIC.TEAM where team_id=?")).isEqualTo("team");
+        assertThat(TableWriteListener.writtenTable("merge into team_stats key (team_id) values (?, ?)")).isEqualTo("team_stats");
+        assertThat(TableWriteListener.writtenTable("select * from member")).isNull();
+    }
+}
@@ -0,0 +1,53 @@
+package study.datajpa.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+//스트리밍은 다른 스레드에서 DB를 읽으므로 @Transactional 없이 커밋된 데이터로 확인한다.
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberControllerTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired MemberRepository memberRepository;
+
+    @Test
+    public void streamEnvelope() throws Exception {
+        //given
+        for (int i = 0; i < 3; i++) {
+            memberRepository.save(new Member("stream" + i, i));
+        }
+
+        //when
+        MvcResult result = mockMvc.perform(get("/members/stream").param("size", "2").param("sort", "age,desc"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.page").value(0))
+                .andExpect(jsonPath("$.size").value(2))
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].id").exists())
+                .andExpect(jsonPath("$.content[0].username").exists())
+                .andExpect(jsonPath("$.hasNext").value(true));
+    }
+
+    @Test
+    public void streamRejectsUnknownSort() throws Exception {
+        //스트리밍을 시작하기 전에 400
+        mockMvc.perform(get("/members/stream").param("sort", "password"))
+                .andExpect(status().isBadRequest());
+    }
+}
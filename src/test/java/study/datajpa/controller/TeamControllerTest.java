@@ -0,0 +1,43 @@
+package study.datajpa.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+//team_stats는 커밋할 때 반영되므로 @Transactional 없이 확인한다.
+@SpringBootTest
+@AutoConfigureMockMvc
+class TeamControllerTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired TeamRepository teamRepository;
+    @Autowired MemberRepository memberRepository;
+
+    @Test
+    public void stats() throws Exception {
+        //given
+        Team team = teamRepository.save(new Team("statsTeam"));
+        memberRepository.save(new Member("statsMember", 20, team));
+
+        //then
+        mockMvc.perform(get("/teams/{id}/stats", team.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.memberCount").value(1))
+                .andExpect(jsonPath("$.ageSum").value(20));
+    }
+
+    @Test
+    public void unknownTeam() throws Exception {
+        mockMvc.perform(get("/teams/{id}/stats", Long.MAX_VALUE))
+                .andExpect(status().isNotFound());
+    }
+}
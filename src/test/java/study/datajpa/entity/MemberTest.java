@@ -55,6 +55,21 @@ class MemberTest {
         }
     }
 
+    @Test
+    public void changeTeamToProxy() throws Exception {
+        Team team = new Team("proxyTeam");
+        em.persist(team);
+        em.flush();
+        em.clear();
+
+        //초기화되지 않은 프록시 팀으로 바꿔도 team.members에 들어가야 한다.
+        Team proxy = em.getReference(Team.class, team.getId());
+        Member member = new Member("proxyMember", 10, proxy);
+        em.persist(member);
+
+        assertTrue(proxy.getMembers().contains(member));
+    }
+
     @Test
     public void JpaEventBaseEntity() throws Exception {
         //given
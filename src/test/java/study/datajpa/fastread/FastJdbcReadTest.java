@@ -0,0 +1,113 @@
+package study.datajpa.fastread;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @FastJdbcRead 메서드(JDBC)와 같은 조건의 JPA 메서드 결과를 비교한다.
+ * JPA 쪽은 team 프록시를 초기화해야 하므로 트랜잭션 안에서 값으로 바꿔서 비교한다.
+ */
+@SpringBootTest
+class FastJdbcReadTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired EntityManager em;
+
+    @Test
+    public void sameResultAsJpa() throws Exception {
+        //given 팀 있는 회원, 팀 없는 회원, 삭제된 회원
+        String username = "f" + UUID.randomUUID().toString().substring(0, 8);
+        int age = 20_000 + (int) (Math.random() * 10_000); //다른 데이터와 겹치지 않는 나이
+        Team team = teamRepository.save(new Team("fastTeam"));
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(memberRepository.save(new Member(username, age, i % 2 == 0 ? team : null)).getId());
+        }
+        memberRepository.save(new Member(username + "x", age, team));
+        memberRepository.deleteById(ids.get(4));
+        ids.add(-1L); //없는 id
+
+        //then
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Long id : ids) {
+                assertThat(snapshot(memberRepository.readById(id))).isEqualTo(snapshot(memberRepository.findById(id)));
+            }
+            assertThat(snapshot(memberRepository.readByUsername(username)))
+                    .hasSize(4)
+                    .containsExactlyInAnyOrderElementsOf(snapshot(memberRepository.findByUsername(username))); //정렬 조건이 없으므로 순서는 비교하지 않음
+
+            for (PageRequest pageRequest : List.of(PageRequest.of(0, 2, Sort.by("username", "id")),
+                    PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "id")),
+                    PageRequest.of(5, 2, Sort.by("id")))) {
+                Page<Member> fast = memberRepository.readByAge(age, pageRequest);
+                Page<Member> jpa = memberRepository.findByAge(age, pageRequest);
+                assertThat(snapshot(fast.getContent())).isEqualTo(snapshot(jpa.getContent()));
+                assertThat(fast.getTotalElements()).isEqualTo(jpa.getTotalElements()).isEqualTo(5);
+            }
+        });
+    }
+
+    @Test
+    public void readOnlyEntities() throws Exception {
+        //given
+        String username = "f" + UUID.randomUUID().toString().substring(0, 8);
+        Member saved = memberRepository.save(new Member(username, 10, teamRepository.save(new Team("fastTeam"))));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            //같은 트랜잭션의 flush 안 된 변경도 보인다.
+            memberRepository.findById(saved.getId()).get().setAge(11);
+            Member member = memberRepository.readById(saved.getId()).get();
+            assertThat(member.getAge()).isEqualTo(11);
+
+            //영속성 컨텍스트에 들어가지 않으므로 바꿔도 저장되지 않는다.
+            assertThat(em.contains(member)).isFalse();
+            member.setUsername("changed");
+        });
+        assertThat(memberRepository.findById(saved.getId()).get().getUsername()).isEqualTo(username);
+    }
+
+    @Test
+    public void associationPathOnlyById() throws Exception {
+        //team.id는 member.team_id로 정렬하지만, team.name은 FK로 바꿀 수 없으므로 거부한다.
+        memberRepository.readByAge(1, PageRequest.of(0, 2, Sort.by("team.id")));
+        assertThatThrownBy(() -> memberRepository.readByAge(1, PageRequest.of(0, 2, Sort.by("team.name"))))
+                .hasMessageContaining("team.name"); //예외 변환(InvalidDataAccessApiUsageException)을 거쳐도 메시지는 남는다.
+    }
+
+    private static List<String> snapshot(List<Member> members) {
+        return members.stream().map(FastJdbcReadTest::snapshot).collect(Collectors.toList());
+    }
+
+    private static String snapshot(Optional<Member> member) {
+        return member.map(FastJdbcReadTest::snapshot).orElse(null);
+    }
+
+    //엔티티의 모든 컬럼 + 팀 컬럼
+    private static String snapshot(Member m) {
+        Team t = m.getTeam();
+        return String.join("|", String.valueOf(m.getId()), m.getUsername(), String.valueOf(m.getAge()), String.valueOf(m.isDeleted()),
+                String.valueOf(m.getCreatedDate()), String.valueOf(m.getLastModifiedDate()), m.getCreatedBy(), m.getLastModifiedBy(),
+                t == null ? "-" : t.getId() + "|" + t.getName() + "|" + t.getCreatedDate() + "|" + t.getLastModifiedDate());
+    }
+}
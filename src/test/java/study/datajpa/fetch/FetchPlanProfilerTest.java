@@ -0,0 +1,123 @@
+package study.datajpa.fetch;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//샘플은 트랜잭션이 끝날 때 기록되므로 트랜잭션을 여러 번 커밋하면서 확인한다.
+@SpringBootTest(properties = {
+        "datajpa.fetch-plan.profiling=true",
+        "datajpa.fetch-plan.min-samples=3",
+        "datajpa.fetch-plan.sample-rate=0"
+})
+class FetchPlanProfilerTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired FetchPlanProfiler profiler;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    @Test
+    public void recommendAndApply() throws Exception {
+        //given
+        String username = "profile-" + UUID.randomUUID();
+        Team team = teamRepository.save(new Team("teamA"));
+        memberRepository.save(new Member(username, 10, team));
+
+        //when 처음 3번은 lazy로 실행하면서 호출한 쪽이 team만 읽는 것을 기록한다.
+        for (int i = 0; i < 3; i++) {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Member> members = findTeamNames(username);
+                assertThat(Hibernate.isInitialized(members.get(0).getTeam())).isTrue(); //getName()으로 지연 로딩됨
+            });
+        }
+
+        //then 같은 호출 위치는 이제 team을 같이 읽는다.
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Member> members = findTeamNamesWithoutTouching(username);
+            assertThat(members).isNotEmpty();
+        });
+        FetchPlanAdvice advice = profiler.getAdvice().stream()
+                .filter(a -> a.getCallSite().contains("callRepository"))
+                .findFirst().get();
+        assertThat(advice.getSamples()).isEqualTo(3);
+        assertThat(advice.getTouchRatio()).containsEntry("team", 1.0).containsEntry("team.members", 0.0);
+        assertThat(advice.getRecommended()).isEqualTo("[team]");
+    }
+
+    @Test
+    public void explicitPlanIsNotSampled() throws Exception {
+        //given
+        String username = "profile-" + UUID.randomUUID();
+        memberRepository.save(new Member(username, 10, teamRepository.save(new Team("teamA"))));
+
+        //then 프로파일링 중이어도 직접 넘긴 계획대로 실행한다. (lazy로 바뀌지 않음)
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Member> members = memberRepository.findByUsername(username, FetchPlan.of("team"));
+            assertThat(Hibernate.isInitialized(members.get(0).getTeam())).isTrue();
+        });
+    }
+
+    @Test
+    public void recordAtRequestEnd() throws Exception {
+        //given
+        String username = "profile-" + UUID.randomUUID();
+        memberRepository.save(new Member(username, 10, teamRepository.save(new Team("teamA"))));
+        ServletRequestAttributes request = new ServletRequestAttributes(new MockHttpServletRequest());
+        RequestContextHolder.setRequestAttributes(request);
+        try {
+            //when 트랜잭션이 끝나도 요청 안에서는 (OSIV 뷰 등) 더 읽을 수 있으므로 아직 기록하지 않는다.
+            transactionTemplate.executeWithoutResult(status -> callRepositoryInRequest(username));
+            assertThat(samples("callRepositoryInRequest")).isZero();
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+            request.requestCompleted();
+        }
+
+        //then 요청이 끝날 때 기록된다.
+        assertThat(samples("callRepositoryInRequest")).isEqualTo(1);
+    }
+
+    private long samples(String callSite) {
+        return profiler.getAdvice().stream()
+                .filter(a -> a.getCallSite().contains(callSite))
+                .mapToLong(FetchPlanAdvice::getSamples)
+                .sum();
+    }
+
+    private List<Member> callRepositoryInRequest(String username) {
+        return memberRepository.findByUsername(username, FetchPlan.auto());
+    }
+
+    private List<Member> findTeamNames(String username) {
+        List<Member> members = callRepository(username);
+        members.forEach(m -> m.getTeam().getName());
+        return members;
+    }
+
+    private List<Member> findTeamNamesWithoutTouching(String username) {
+        List<Member> members = callRepository(username);
+        //추천 계획(team)이 적용되었으므로 읽지 않아도 이미 초기화되어 있다.
+        assertThat(Hibernate.isInitialized(members.get(0).getTeam())).isTrue();
+        return members;
+    }
+
+    //호출 위치는 리포지토리를 직접 부른 이 메서드의 같은 줄
+    private List<Member> callRepository(String username) {
+        return memberRepository.findByUsername(username, FetchPlan.auto());
+    }
+}
@@ -0,0 +1,67 @@
+package study.datajpa.fetch;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Transactional
+@SpringBootTest
+class FetchPlanTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired EntityManager em;
+
+    @Test
+    public void planPerCall() throws Exception {
+        //given
+        String username = "fetch-" + UUID.randomUUID();
+        Team team = teamRepository.save(new Team("teamA"));
+        memberRepository.save(new Member(username, 10, team));
+        memberRepository.save(new Member(username, 20, team));
+        em.flush();
+        em.clear();
+
+        //when then lazy
+        List<Member> lazy = memberRepository.findByUsername(username, FetchPlan.lazy());
+        assertThat(Hibernate.isInitialized(lazy.get(0).getTeam())).isFalse();
+        em.clear();
+
+        //team
+        List<Member> withTeam = memberRepository.findByUsername(username, FetchPlan.of("team"));
+        assertThat(Hibernate.isInitialized(withTeam.get(0).getTeam())).isTrue();
+        assertThat(Hibernate.isInitialized(withTeam.get(0).getTeam().getMembers())).isFalse();
+        em.clear();
+
+        //team.members 까지 (회원이 팀원 수만큼 중복되지 않는다)
+        List<Member> withMembers = memberRepository.findByUsername(username, FetchPlan.of("team", "team.members"));
+        assertThat(withMembers).hasSize(2);
+        assertThat(Hibernate.isInitialized(withMembers.get(0).getTeam().getMembers())).isTrue();
+        assertThat(withMembers.get(0).getTeam().getMembers()).hasSize(2);
+    }
+
+    @Test
+    public void auto() throws Exception {
+        //프로파일링이 꺼져 있으면 auto는 fallback으로 실행된다.
+        Team team = teamRepository.save(new Team("teamA"));
+        Member member = memberRepository.save(new Member("fetch-auto", 10, team));
+        em.flush();
+        em.clear();
+
+        Member found = memberRepository.findById(member.getId(), FetchPlan.auto(FetchPlan.of("team"))).get();
+
+        assertThat(Hibernate.isInitialized(found.getTeam())).isTrue();
+    }
+}
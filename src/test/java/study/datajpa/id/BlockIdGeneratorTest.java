@@ -0,0 +1,86 @@
+package study.datajpa.id;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.IdSequences;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class BlockIdGeneratorTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void concurrentInserts() throws Exception {
+        //given 여러 스레드가 동시에 insert (블록 경계를 여러 번 넘도록)
+        int threads = 8;
+        int perThread = 300;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                List<Long> ids = new ArrayList<>();
+                for (int i = 0; i < perThread; i++) {
+                    ids.add(memberRepository.save(new Member("idMember", 10)).getId());
+                }
+                return ids;
+            }));
+        }
+
+        //then
+        Set<Long> ids = new HashSet<>();
+        for (Future<List<Long>> future : futures) {
+            List<Long> threadIds = future.get(1, TimeUnit.MINUTES);
+            assertThat(threadIds).isSorted(); //한 스레드 안에서는 증가
+            ids.addAll(threadIds);
+        }
+        executor.shutdown();
+        assertThat(ids).hasSize(threads * perThread);
+
+        Long nextValue = jdbcTemplate.queryForObject("select next_value from id_block where segment = 'member'", Long.class);
+        assertThat(ids).allMatch(id -> id < nextValue);
+    }
+
+    @Test
+    public void reserveDoesNotOverlapGeneratedIds() throws Exception {
+        //given 이 노드가 블록을 받아둔 상태
+        Team team = teamRepository.save(new Team("teamA"));
+
+        //when JDBC로 넣을 범위를 예약
+        long first = IdSequences.reserve(jdbcTemplate, "team", 100);
+
+        //then 예약한 범위는 받아둔 블록 뒤이고, 이후 엔티티 id와도 겹치지 않는다.
+        assertThat(first).isGreaterThan(team.getId());
+        for (int i = 0; i < 10; i++) {
+            long id = teamRepository.save(new Team("team" + i)).getId();
+            assertThat(id < first || id >= first + 100).isTrue();
+        }
+    }
+
+    @Test
+    public void advancePastExistingIds() throws Exception {
+        //given 이미 예약된 어떤 블록보다도 큰 id를 직접 넣음
+        Long nextValue = jdbcTemplate.queryForObject("select coalesce(max(next_value), 1) from id_block", Long.class);
+        long importedId = nextValue + 1_000_000;
+        jdbcTemplate.update("insert into team (team_id, name) values (?, 'imported')", importedId);
+
+        //when
+        IdSequences.advancePastExistingIds(jdbcTemplate);
+
+        //then 다음 블록은 그 id 다음부터
+        assertThat(IdSequences.reserve(jdbcTemplate, "team", 1)).isGreaterThan(importedId);
+        jdbcTemplate.update("delete from team where team_id = ?", importedId);
+    }
+}
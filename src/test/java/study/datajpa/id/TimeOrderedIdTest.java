@@ -0,0 +1,67 @@
+package study.datajpa.id;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.jpa.properties.datajpa.id.time-ordered=true")
+class TimeOrderedIdTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void timeOrdered() throws Exception {
+        //given
+        long before = System.currentTimeMillis();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(memberRepository.save(new Member("timeMember", 10)).getId());
+        }
+
+        //then 만든 순서대로 증가하고, 상위 비트는 생성 시각(밀리초)
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+        long epoch = Instant.parse("2020-01-01T00:00:00Z").toEpochMilli();
+        long millis = (ids.get(0) >>> 22) + epoch;
+        assertThat(millis).isBetween(before, System.currentTimeMillis() + 1000);
+    }
+
+    @Test
+    public void leaseNodeSlots() throws Exception {
+        //given 슬롯 2개짜리 segment
+        String segment = "lease" + UUID.randomUUID().toString().substring(0, 8);
+        int a = lease(segment, "nodeA", 60_000);
+        int b = lease(segment, "nodeB", 60_000);
+
+        //then 살아있는 노드끼리는 슬롯이 겹치지 않고, 모두 임대 중이면 실패한다.
+        assertThat(a).isNotEqualTo(b);
+        assertThatThrownBy(() -> lease(segment, "nodeC", 60_000))
+                .isInstanceOf(IllegalStateException.class);
+
+        //nodeA가 연장하지 못하고 만료되면 그 슬롯만 다시 빌려준다.
+        jdbcTemplate.update("update id_block set lease_until = dateadd(millisecond, -1, localtimestamp) where segment = ?", segment + ":" + a);
+        assertThat(lease(segment, "nodeC", 60_000)).isEqualTo(a);
+        assertThat(renew(segment, a, "nodeA")).isFalse(); //nodeA는 새 슬롯을 빌려야 한다.
+        assertThat(renew(segment, b, "nodeB")).isTrue();
+    }
+
+    private int lease(String segment, String owner, long leaseMillis) {
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> IdBlocks.leaseSlot(connection, segment, 2, owner, leaseMillis));
+    }
+
+    private boolean renew(String segment, int slot, String owner) {
+        return jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> IdBlocks.renewSlot(connection, segment, slot, owner, 60_000));
+    }
+}
@@ -0,0 +1,126 @@
+package study.datajpa.load;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.monitor.ContentionProfiler;
+import study.datajpa.monitor.ContentionStats;
+import study.datajpa.repository.MemberRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 스레드 수를 1, 2, 4, ... N(코어 수)까지 늘리면서 처리량이 얼마나 늘어나는지 잰다. (./gradlew loadTest)
+ *   ./gradlew loadTest -Dload.max-threads=32 -Dload.seconds=10
+ *   - 행이 겹치지 않는 락 조회 + 수정, 모든 스레드가 같은 행을 잠그는 경우, save(insert + Auditing)
+ * 1 스레드 대비 배율(speedup)과 ContentionProfiler의 락 대기 통계를 콘솔에 찍고 build/reports/load/scaling.csv 에 추가한다.
+ */
+@Tag("load")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=warn",
+        "decorator.datasource.p6spy.enable-logging=false"
+})
+class ConcurrencyScalingTest {
+
+    static final int MAX_THREADS = Integer.getInteger("load.max-threads", Runtime.getRuntime().availableProcessors());
+    static final int SECONDS = Integer.getInteger("load.seconds", 5);
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        SqlCounter sqlCounter() {
+            return new SqlCounter();
+        }
+    }
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired ContentionProfiler contentionProfiler;
+    @Autowired SqlCounter sqlCounter;
+
+    LoadHarness harness;
+
+    @BeforeAll
+    void setUp() {
+        for (int t = 0; t < MAX_THREADS; t++) {
+            memberRepository.save(new Member("scaling" + t, 0));
+        }
+        memberRepository.save(new Member("scalingHot", 0));
+        harness = new LoadHarness(sqlCounter, Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void scaling() throws Exception {
+        List<String> lines = new ArrayList<>();
+        lines.addAll(measure("lock+update (own row)", t -> incrementAge("scaling" + t)));
+        lines.addAll(measure("lock+update (hot row)", t -> incrementAge("scalingHot")));
+        lines.addAll(measure("save", t -> memberRepository.save(new Member("scalingSave", t))));
+        writeCsv(lines);
+    }
+
+    private List<String> measure(String scenario, IntConsumer operation) throws InterruptedException {
+        contentionProfiler.reset();
+        List<String> lines = new ArrayList<>();
+        double single = 0;
+        System.out.println(LoadReport.header() + String.format(" %8s", "speedup"));
+        for (int threads = 1; threads <= MAX_THREADS; threads = next(threads)) {
+            LoadReport report = harness.run(scenario, threads, Duration.ofSeconds(SECONDS), operation);
+            if (threads == 1) {
+                single = report.getThroughput();
+            }
+            double speedup = single == 0 ? 0 : report.getThroughput() / single;
+            System.out.println(report + String.format(" %8.2f", speedup));
+            lines.add(LocalDateTime.now() + "," + report.toCsv() + "," + String.format("%.2f", speedup));
+            assertThat(report.getOperations()).isPositive();
+        }
+        for (ContentionStats stats : contentionProfiler.getStats()) {
+            System.out.printf("  %-40s lockWaits=%d waitTotal=%.1fms waitMax=%.1fms timeouts=%d deadlocks=%d optimistic=%d%n",
+                    stats.getMethod(), stats.getLockWaits(), stats.getLockWaitMillisTotal(), stats.getLockWaitMillisMax(),
+                    stats.getLockTimeouts(), stats.getDeadlocks(), stats.getOptimisticFailures());
+        }
+        return lines;
+    }
+
+    //1, 2, 4, ... 마지막은 MAX_THREADS
+    private static int next(int threads) {
+        return threads == MAX_THREADS ? threads + 1 : Math.min(threads * 2, MAX_THREADS);
+    }
+
+    private void incrementAge(String username) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Member member = memberRepository.findLockByUsername(username).get(0);
+            member.setAge(member.getAge() + 1);
+        });
+    }
+
+    private void writeCsv(List<String> lines) throws IOException {
+        Path file = Paths.get("build", "reports", "load", "scaling.csv");
+        Files.createDirectories(file.getParent());
+        List<String> output = new ArrayList<>();
+        if (!Files.exists(file)) {
+            output.add("runAt,scenario,threads,ops,errors,opsPerSec,p50Millis,p99Millis,sqlPerOp,speedup");
+        }
+        output.addAll(lines);
+        Files.write(file, output, CREATE, APPEND);
+    }
+}
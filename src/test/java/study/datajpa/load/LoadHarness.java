@@ -0,0 +1,120 @@
+package study.datajpa.load;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * 정해진 시간 동안 threads개 스레드로 같은 작업을 반복 실행하고 처리량, p50/p99 지연시간, 작업당 SQL 수를 잰다.
+ * 지연시간은 스레드마다 long 배열에 모았다가 마지막에 합쳐서 정렬한다. (측정 중에 스레드끼리 경쟁하지 않도록)
+ */
+public class LoadHarness {
+
+    private final SqlCounter sqlCounter;
+    private final Duration warmup;
+
+    public LoadHarness(SqlCounter sqlCounter, Duration warmup) {
+        this.sqlCounter = sqlCounter;
+        this.warmup = warmup;
+    }
+
+    /**
+     * @param operation 스레드 번호를 받아서 한 번 실행. RuntimeException을 던지면 오류로 세고 지연시간에서는 뺀다.
+     */
+    public LoadReport run(String name, int threads, Duration duration, IntConsumer operation) throws InterruptedException {
+        if (!warmup.isZero()) {
+            execute(threads, warmup, operation);
+        }
+        long sqlBefore = sqlCounter.count();
+        Result result = execute(threads, duration, operation);
+        long sqlCount = sqlCounter.count() - sqlBefore;
+
+        long[] latencies = result.latencies;
+        Arrays.sort(latencies);
+        long operations = latencies.length;
+        return new LoadReport(name, threads, operations, result.errors,
+                operations / (result.elapsedNanos / 1e9),
+                percentile(latencies, 0.50) / 1e6,
+                percentile(latencies, 0.99) / 1e6,
+                operations == 0 ? 0 : (double) sqlCount / operations);
+    }
+
+    private Result execute(int threads, Duration duration, IntConsumer operation) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        LongAdder errors = new LongAdder();
+        long[][] perThread = new long[threads][];
+        int[] counts = new int[threads];
+        long deadline = System.nanoTime() + duration.toNanos() + TimeUnit.MILLISECONDS.toNanos(100);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    long[] samples = new long[1024];
+                    int count = 0;
+                    start.await();
+                    while (System.nanoTime() < deadline) {
+                        long begin = System.nanoTime();
+                        try {
+                            operation.accept(thread);
+                        } catch (RuntimeException e) {
+                            errors.increment();
+                            continue;
+                        }
+                        if (count == samples.length) {
+                            samples = Arrays.copyOf(samples, count * 2);
+                        }
+                        samples[count++] = System.nanoTime() - begin;
+                    }
+                    perThread[thread] = samples;
+                    counts[thread] = count;
+                    return null;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long elapsed = System.nanoTime() - begin;
+
+            int total = Arrays.stream(counts).sum();
+            long[] latencies = new long[total];
+            int offset = 0;
+            for (int t = 0; t < threads; t++) {
+                System.arraycopy(perThread[t], 0, latencies, offset, counts[t]);
+                offset += counts[t];
+            }
+            return new Result(latencies, errors.sum(), elapsed);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static class Result {
+        private final long[] latencies;
+        private final long errors;
+        private final long elapsedNanos;
+
+        Result(long[] latencies, long errors, long elapsedNanos) {
+            this.latencies = latencies;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+}
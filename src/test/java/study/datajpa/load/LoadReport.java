@@ -0,0 +1,43 @@
+package study.datajpa.load;
+
+import lombok.Getter;
+
+@Getter
+public class LoadReport {
+
+    private final String name;
+    private final int threads;
+    private final long operations;
+    private final long errors;
+    private final double throughput; //ops/s
+    private final double p50Millis;
+    private final double p99Millis;
+    private final double sqlPerOperation;
+
+    public LoadReport(String name, int threads, long operations, long errors, double throughput,
+                      double p50Millis, double p99Millis, double sqlPerOperation) {
+        this.name = name;
+        this.threads = threads;
+        this.operations = operations;
+        this.errors = errors;
+        this.throughput = throughput;
+        this.p50Millis = p50Millis;
+        this.p99Millis = p99Millis;
+        this.sqlPerOperation = sqlPerOperation;
+    }
+
+    public static String header() {
+        return String.format("%-28s %7s %10s %7s %12s %9s %9s %8s", "scenario", "threads", "ops", "errors", "ops/s", "p50(ms)", "p99(ms)", "sql/op");
+    }
+
+    public String toCsv() {
+        return String.join(",", name, String.valueOf(threads), String.valueOf(operations), String.valueOf(errors),
+                String.format("%.1f", throughput), String.format("%.3f", p50Millis), String.format("%.3f", p99Millis),
+                String.format("%.2f", sqlPerOperation));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-28s %7d %10d %7d %12.1f %9.3f %9.3f %8.2f", name, threads, operations, errors, throughput, p50Millis, p99Millis, sqlPerOperation);
+    }
+}
@@ -0,0 +1,113 @@
+package study.datajpa.load;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.datajpa.repository.IdSequences;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 같은 seed면 항상 같은 데이터를 만드는 대량 회원/팀 생성기.
+ *   - 팀 크기는 Zipf 분포라 소수의 큰 팀과 다수의 작은 팀이 생긴다. 회원의 10%는 팀이 없다.
+ *   - username은 "성 + 이름 두 음절" 조합이고 성도 Zipf로 골라서 흔한 이름이 여러 번 나온다. (findByUsername 결과가 여러 건)
+ *   - 나이는 20~60대에 몰려있다.
+ * 넣을 id 범위를 id_block에서 먼저 예약(IdSequences.reserve)하고 JDBC batch insert로 id를 직접 넣는다.
+ */
+public class MemberDataGenerator {
+
+    private static final String[] SURNAMES = {"kim", "lee", "park", "choi", "jung", "kang", "cho", "yoon", "jang", "lim",
+            "han", "oh", "seo", "shin", "kwon", "hwang", "ahn", "song", "ryu", "hong"};
+    private static final String[] SYLLABLES = {"min", "seo", "ji", "hyun", "woo", "jun", "young", "su", "eun", "ho",
+            "jin", "ha", "yun", "do", "hee", "sung", "won", "jae", "na", "bin"};
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SplittableRandom random;
+
+    public MemberDataGenerator(JdbcTemplate jdbcTemplate, long seed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * @return 생성된 회원 id 범위의 시작값 (firstMemberId ~ firstMemberId + members - 1)
+     */
+    public long generate(int teams, int members) {
+        long teamBase = IdSequences.reserve(jdbcTemplate, "team", teams);
+        long firstMemberId = IdSequences.reserve(jdbcTemplate, "member", members);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int t = 0; t < teams; t++) {
+            batch.add(new Object[]{teamBase + t, "team" + t, now, now});
+            flushIfFull(batch, "insert into team (team_id, name, created_date, last_modified_date) values (?, ?, ?, ?)");
+        }
+        flush(batch, "insert into team (team_id, name, created_date, last_modified_date) values (?, ?, ?, ?)");
+
+        double[] teamWeights = zipfCumulative(teams, 1.1);
+        double[] surnameWeights = zipfCumulative(SURNAMES.length, 1.0);
+        String memberSql = "insert into member (member_id, username, age, team_id, deleted, created_date, last_modified_date," +
+                " created_by, last_modified_by) values (?, ?, ?, ?, false, ?, ?, 'generator', 'generator')";
+        for (int m = 0; m < members; m++) {
+            Long teamId = random.nextInt(10) == 0 ? null : teamBase + pick(teamWeights);
+            batch.add(new Object[]{firstMemberId + m, username(surnameWeights), age(), teamId, now, now});
+            flushIfFull(batch, memberSql);
+        }
+        flush(batch, memberSql);
+        return firstMemberId;
+    }
+
+    private String username(double[] surnameWeights) {
+        String name = SURNAMES[pick(surnameWeights)]
+                + SYLLABLES[random.nextInt(SYLLABLES.length)]
+                + SYLLABLES[random.nextInt(SYLLABLES.length)];
+        //가끔 숫자가 붙은 아이디
+        return random.nextInt(4) == 0 ? name + random.nextInt(100) : name;
+    }
+
+    private int age() {
+        int age = (int) Math.round(38 + random.nextDouble() * 20 - random.nextDouble() * 20 + (random.nextDouble() - 0.5) * 10);
+        return Math.max(10, Math.min(age, 90));
+    }
+
+    private int pick(double[] cumulative) {
+        double value = random.nextDouble() * cumulative[cumulative.length - 1];
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static double[] zipfCumulative(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        return cumulative;
+    }
+
+    private void flushIfFull(List<Object[]> batch, String sql) {
+        if (batch.size() == BATCH_SIZE) {
+            flush(batch, sql);
+        }
+    }
+
+    private void flush(List<Object[]> batch, String sql) {
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, batch);
+            batch.clear();
+        }
+    }
+}
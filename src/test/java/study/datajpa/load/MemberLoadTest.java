@@ -0,0 +1,128 @@
+package study.datajpa.load;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.datajpa.repository.MemberRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * 부하 테스트. 기본 test 태스크에서는 제외되고 ./gradlew loadTest 로 실행한다.
+ *   ./gradlew loadTest -Dload.members=1000000 -Dload.teams=5000 -Dload.threads=16 -Dload.seconds=30
+ * 결과는 콘솔에 표로 찍고 build/reports/load/baseline.csv 에 한 줄씩 추가해서 이전 실행과 비교할 수 있게 한다.
+ */
+@Tag("load")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+        "logging.level.org.hibernate.SQL=warn",
+        "decorator.datasource.p6spy.enable-logging=false"
+})
+class MemberLoadTest {
+
+    static final int MEMBERS = Integer.getInteger("load.members", 100_000);
+    static final int TEAMS = Integer.getInteger("load.teams", 1_000);
+    static final int THREADS = Integer.getInteger("load.threads", 8);
+    static final int SECONDS = Integer.getInteger("load.seconds", 10);
+    static final long SEED = Long.getLong("load.seed", 42L);
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        SqlCounter sqlCounter() {
+            return new SqlCounter();
+        }
+    }
+
+    @Autowired TestRestTemplate restTemplate;
+    @Autowired MemberRepository memberRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired SqlCounter sqlCounter;
+
+    long firstMemberId;
+    LoadHarness harness;
+
+    @BeforeAll
+    void generateData() {
+        firstMemberId = new MemberDataGenerator(jdbcTemplate, SEED).generate(TEAMS, MEMBERS);
+        harness = new LoadHarness(sqlCounter, Duration.ofSeconds(Math.max(1, SECONDS / 5)));
+    }
+
+    @Test
+    public void baseline() throws Exception {
+        Duration duration = Duration.ofSeconds(SECONDS);
+        int pages = Math.max(1, MEMBERS / 20);
+        SplittableRandom seeds = new SplittableRandom(SEED);
+        SplittableRandom[] randoms = new SplittableRandom[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            randoms[t] = seeds.split();
+        }
+
+        List<LoadReport> reports = new ArrayList<>();
+        reports.add(harness.run("GET /members", THREADS, duration,
+                t -> get("/members?page=" + randoms[t].nextInt(pages) + "&size=20")));
+        reports.add(harness.run("GET /members/{id}", THREADS, duration,
+                t -> get("/members/" + randomMemberId(randoms[t]))));
+        reports.add(harness.run("GET /members/stream", THREADS, duration,
+                t -> get("/members/stream?page=" + randoms[t].nextInt(pages) + "&size=20")));
+        reports.add(harness.run("findByUsername", THREADS, duration,
+                t -> memberRepository.findByUsername("kimminseo")));
+        reports.add(harness.run("findByAge(page)", THREADS, duration,
+                t -> memberRepository.findByAge(20 + randoms[t].nextInt(40), PageRequest.of(0, 20))));
+
+        System.out.println(LoadReport.header());
+        reports.forEach(System.out::println);
+        writeBaseline(reports);
+
+        assertThat(reports).allSatisfy(report -> {
+            assertThat(report.getOperations()).isPositive();
+            assertThat(report.getErrors()).isZero();
+        });
+    }
+
+    //TestRestTemplate은 4xx/5xx에도 예외를 던지지 않으므로 직접 확인해서 LoadHarness가 오류로 세게 한다.
+    private void get(String url) {
+        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new IllegalStateException("GET " + url + " -> " + response.getStatusCodeValue());
+        }
+    }
+
+    private long randomMemberId(SplittableRandom random) {
+        return firstMemberId + random.nextInt(MEMBERS);
+    }
+
+    private void writeBaseline(List<LoadReport> reports) throws IOException {
+        Path file = Paths.get("build", "reports", "load", "baseline.csv");
+        Files.createDirectories(file.getParent());
+        List<String> lines = new ArrayList<>();
+        if (!Files.exists(file)) {
+            lines.add("runAt,members,scenario,threads,ops,errors,opsPerSec,p50Millis,p99Millis,sqlPerOp");
+        }
+        String prefix = LocalDateTime.now() + "," + MEMBERS + ",";
+        reports.forEach(report -> lines.add(prefix + report.toCsv()));
+        Files.write(file, lines, CREATE, APPEND);
+    }
+}
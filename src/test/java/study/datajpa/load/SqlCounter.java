@@ -0,0 +1,25 @@
+package study.datajpa.load;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 실행된 SQL 수. p6spy-spring-boot-starter가 빈으로 등록된 리스너를 자동으로 붙여준다.
+ * JPA, JdbcTemplate 어느 쪽으로 실행했든 모두 센다.
+ */
+public class SqlCounter extends SimpleJdbcEventListener {
+
+    private final LongAdder count = new LongAdder();
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        count.increment();
+    }
+
+    public long count() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,43 @@
+package study.datajpa.monitor;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Transactional
+@SpringBootTest(properties = {
+        "datajpa.monitor.persistence-context.warn-threshold=3",
+        "datajpa.monitor.persistence-context.clear-threshold=5",
+        "datajpa.monitor.persistence-context.auto-clear=true"
+})
+class PersistenceContextGuardTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired PersistenceContextGuard guard;
+    @Autowired EntityManager em;
+
+    @Test
+    public void autoFlushAndClear() throws Exception {
+        //given
+        long autoClearsBefore = guard.getStats().getAutoClears();
+
+        //when clear-threshold(5)에 도달하는 순간 flush + clear 된다.
+        Member last = null;
+        for (int i = 0; i < 5; i++) {
+            last = memberRepository.save(new Member("member" + i, i));
+        }
+
+        //then
+        assertThat(guard.getStats().getAutoClears()).isEqualTo(autoClearsBefore + 1);
+        assertThat(em.contains(last)).isFalse();
+        assertThat(memberRepository.findById(last.getId())).isPresent(); //flush 되었으므로 DB에는 있다.
+        assertThat(guard.getStats().getMaxObserved()).isGreaterThanOrEqualTo(5);
+    }
+}
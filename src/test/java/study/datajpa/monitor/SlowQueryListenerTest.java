@@ -0,0 +1,65 @@
+package study.datajpa.monitor;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//임계치 0: 모든 쿼리가 남는다.
+@SpringBootTest(properties = "datajpa.monitor.slow-query.threshold-ms=0")
+class SlowQueryListenerTest {
+
+    @Autowired SlowQueryListener slowQueryListener;
+    @Autowired MemberRepository memberRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void recordRepositoryQuery() throws Exception {
+        //given
+        String name = "slow" + UUID.randomUUID().toString().substring(0, 8);
+        memberRepository.save(new Member(name, 10));
+
+        //when
+        memberRepository.findByUsername(name);
+
+        //then 리포지토리 메서드, 바인딩 값이 채워진 SQL, 읽은 행 수
+        SlowQueryEntry entry = last(sql -> sql.contains("'" + name + "'"));
+        assertThat(entry.getRepositoryMethod()).isEqualTo("MemberRepository.findByUsername");
+        assertThat(entry.getSql()).startsWith("select");
+        assertThat(entry.getRowCount()).isEqualTo(1);
+        assertThat(entry.isFailed()).isFalse();
+    }
+
+    @Test
+    public void recordFailedExecution() throws Exception {
+        //given
+        Member member = memberRepository.save(new Member("slow", 10));
+
+        //when age는 not null
+        assertThatThrownBy(() -> jdbcTemplate.update("update member set age = ? where member_id = ?", null, member.getId()))
+                .isInstanceOf(DataAccessException.class);
+
+        //then 실패도 남는다.
+        SlowQueryEntry entry = last(sql -> sql.startsWith("update member set age") && sql.endsWith("member_id = " + member.getId()));
+        assertThat(entry.isFailed()).isTrue();
+        assertThat(entry.getError()).isNotBlank();
+        assertThat(entry.getRowCount()).isZero();
+        assertThat(entry.getRepositoryMethod()).isNull(); //리포지토리 밖
+    }
+
+    private SlowQueryEntry last(Predicate<String> sql) {
+        return slowQueryListener.getBuffer().snapshot().stream()
+                .filter(entry -> sql.test(entry.getSql()))
+                .reduce((first, second) -> second)
+                .orElseThrow();
+    }
+}
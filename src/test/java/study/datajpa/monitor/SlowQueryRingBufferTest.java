@@ -0,0 +1,28 @@
+package study.datajpa.monitor;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlowQueryRingBufferTest {
+
+    @Test
+    public void overwriteOldest() throws Exception {
+        //given
+        SlowQueryRingBuffer buffer = new SlowQueryRingBuffer(3);
+
+        //when
+        for (int i = 0; i < 5; i++) {
+            buffer.offer(new SlowQueryEntry(buffer.nextSequence(), Instant.now(), "MemberRepository.findAll",
+                    "select " + i, i, 10, 0, -1));
+        }
+
+        //then 가장 오래된 2건은 덮어써지고 순서는 유지된다.
+        List<SlowQueryEntry> entries = buffer.snapshot();
+        assertThat(entries).extracting(SlowQueryEntry::getSql)
+                .containsExactly("select 2", "select 3", "select 4");
+    }
+}
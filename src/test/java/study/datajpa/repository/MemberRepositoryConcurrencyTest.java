@@ -0,0 +1,217 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.monitor.ContentionProfiler;
+import study.datajpa.monitor.ContentionStats;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 여러 스레드에서 MemberRepository를 동시에 쓸 때의 동작. 각 스레드가 자기 트랜잭션을 커밋해야 하므로 @Transactional 없이 실행한다.
+ * 순서가 중요한 테스트는 CountDownLatch / CyclicBarrier로 끼어드는 시점을 정해둔다.
+ */
+@SpringBootTest
+class MemberRepositoryConcurrencyTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired ContentionProfiler contentionProfiler;
+
+    ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+        contentionProfiler.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void findLockSerializesReadModifyWrite() throws Exception {
+        //given
+        String username = uniqueName();
+        memberRepository.save(new Member(username, 10));
+        CountDownLatch locked = new CountDownLatch(1);
+
+        //when 첫 번째 트랜잭션이 락을 잡은 채로 잠시 멈춘 사이에 두 번째가 같은 행을 잠그려고 한다.
+        Future<?> first = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            Member member = memberRepository.findLockByUsername(username).get(0);
+            locked.countDown();
+            sleep(300);
+            member.setAge(member.getAge() + 1);
+        }));
+        locked.await(10, TimeUnit.SECONDS);
+        Future<?> second = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            Member member = memberRepository.findLockByUsername(username).get(0);
+            member.setAge(member.getAge() + 1);
+        }));
+        first.get(30, TimeUnit.SECONDS);
+        second.get(30, TimeUnit.SECONDS);
+
+        //then 갱신이 사라지지 않고, 두 번째 호출이 기다린 시간이 기록된다.
+        assertThat(memberRepository.findListByUsername(username).get(0).getAge()).isEqualTo(12);
+        ContentionStats stats = stats("MemberRepository.findLockByUsername");
+        assertThat(stats.getCalls()).isEqualTo(2);
+        assertThat(stats.getLockWaits()).isGreaterThanOrEqualTo(1);
+        assertThat(stats.getLockWaitMillisMax()).isGreaterThanOrEqualTo(100);
+    }
+
+    @Test
+    public void lockOrderDeadlock() throws Exception {
+        //given
+        String usernameA = uniqueName();
+        String usernameB = uniqueName();
+        memberRepository.save(new Member(usernameA, 10));
+        memberRepository.save(new Member(usernameB, 10));
+        CyclicBarrier bothLocked = new CyclicBarrier(2);
+
+        //when 서로 반대 순서로 두 행을 잠근다.
+        Future<?> first = executor.submit(() -> lockInOrder(usernameA, usernameB, bothLocked));
+        Future<?> second = executor.submit(() -> lockInOrder(usernameB, usernameA, bothLocked));
+
+        //then 한쪽만 실패하고 (데드락 감지 또는 락 타임아웃) 프로파일러에 남는다.
+        List<Throwable> failures = new ArrayList<>();
+        for (Future<?> future : List.of(first, second)) {
+            try {
+                future.get(30, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                failures.add(e.getCause());
+            }
+        }
+        assertThat(failures).hasSize(1);
+        assertThat(failures.get(0)).isInstanceOf(DataAccessException.class);
+        ContentionStats stats = stats("MemberRepository.findLockByUsername");
+        assertThat(stats.getDeadlocks() + stats.getLockTimeouts() + stats.getOptimisticFailures()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    public void parallelSaveWithAuditing() throws Exception {
+        //given
+        String username = uniqueName();
+        int threads = 8;
+        int perThread = 50;
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                List<Long> ids = new ArrayList<>();
+                for (int i = 0; i < perThread; i++) {
+                    ids.add(memberRepository.save(new Member(username, i)).getId());
+                }
+                return ids;
+            }));
+        }
+
+        //when
+        start.countDown();
+        Set<Long> ids = new HashSet<>();
+        for (Future<List<Long>> future : futures) {
+            ids.addAll(future.get(1, TimeUnit.MINUTES));
+        }
+
+        //then id와 감사 정보가 모두 채워지고 호출마다 따로 기록된다.
+        assertThat(ids).hasSize(threads * perThread);
+        List<Member> saved = memberRepository.findListByUsername(username);
+        assertThat(saved).hasSize(threads * perThread);
+        assertThat(saved).allSatisfy(member -> {
+            assertThat(member.getCreatedDate()).isNotNull();
+            assertThat(member.getLastModifiedDate()).isEqualTo(member.getCreatedDate());
+            assertThat(member.getCreatedBy()).isNotNull().isEqualTo(member.getLastModifiedBy());
+        });
+        assertThat(saved).extracting(Member::getCreatedBy).doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void bulkAgePlusRacingWithReads() throws Exception {
+        //given 다른 데이터와 겹치지 않는 나이
+        String username = uniqueName();
+        int members = 20;
+        for (int i = 0; i < members; i++) {
+            memberRepository.save(new Member(username, 10_000));
+        }
+        int rounds = 20;
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        //when 읽는 쪽은 계속 조회하고, 쓰는 쪽은 벌크 update를 반복
+        List<Future<Integer>> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            readers.add(executor.submit(() -> {
+                int reads = 0;
+                while (writing.get()) {
+                    List<Member> found = memberRepository.findListByUsername(username);
+                    //then 한 번의 조회에서는 모두 같은 나이 (벌크 update는 한꺼번에 커밋된다)
+                    assertThat(found).hasSize(members);
+                    assertThat(found).extracting(Member::getAge).containsOnly(found.get(0).getAge());
+                    reads++;
+                }
+                return reads;
+            }));
+        }
+        Future<?> writer = executor.submit(() -> {
+            try {
+                for (int i = 0; i < rounds; i++) {
+                    transactionTemplate.executeWithoutResult(status -> memberRepository.bulkAgePlus(10_000));
+                }
+            } finally {
+                writing.set(false);
+            }
+        });
+        writer.get(1, TimeUnit.MINUTES);
+        for (Future<Integer> reader : readers) {
+            assertThat(reader.get(1, TimeUnit.MINUTES)).isPositive();
+        }
+
+        assertThat(memberRepository.findListByUsername(username)).extracting(Member::getAge).containsOnly(10_000 + rounds);
+    }
+
+    private void lockInOrder(String first, String second, CyclicBarrier bothLocked) {
+        transactionTemplate.executeWithoutResult(status -> {
+            memberRepository.findLockByUsername(first);
+            await(bothLocked);
+            memberRepository.findLockByUsername(second);
+        });
+    }
+
+    private ContentionStats stats(String method) {
+        return contentionProfiler.getStats().stream()
+                .filter(stats -> stats.getMethod().equals(method))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static String uniqueName() {
+        return "c" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package study.datajpa.repository;
 
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -9,13 +10,18 @@ import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.MemberAgeColumns;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 import study.datajpa.entity.Team;
 
 import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -136,6 +142,21 @@ class MemberRepositoryTest {
         }
     }
 
+    @Test
+    public void findMemberDtoPage() throws Exception {
+        Team team = new Team("teamA");
+        teamRepository.save(team);
+        memberRepository.save(new Member("AAA", 10, team));
+        memberRepository.save(new Member("BBB", 20));
+
+        Page<MemberDto> page = memberRepository.findMemberDtoPage(PageRequest.of(0, 2, DESC, "id"));
+
+        //team이 없는 회원도 left join이라 빠지지 않는다.
+        assertThat(page.getContent()).extracting(MemberDto::getUsername).containsExactly("BBB", "AAA");
+        assertThat(page.getContent()).extracting(MemberDto::getTeamName).containsExactly(null, "teamA");
+        assertThat(page.getTotalElements()).isEqualTo(memberRepository.count());
+    }
+
 
     @Test
     public void findByNames() throws Exception {
@@ -402,4 +423,116 @@ class MemberRepositoryTest {
              List<Member> result = memberRepository.findMemberCustom();
           }
 
-}
\ No newline at end of file
+         @Test
+         public void findIdAndAgeColumns() throws Exception {
+             //given
+             Member member1 = memberRepository.save(new Member("member1", 10));
+             Member member2 = memberRepository.save(new Member("member2", 20));
+
+             //when (flush하지 않아도 JDBC 조회 전에 반영된다.)
+             MemberAgeColumns columns = memberRepository.findIdAndAgeColumns();
+
+             //then
+             Map<Long, Integer> ages = new HashMap<>();
+             for (int i = 0; i < columns.size(); i++) {
+                 ages.put(columns.idAt(i), columns.ageAt(i));
+             }
+             assertThat(ages).containsEntry(member1.getId(), 10);
+             assertThat(ages).containsEntry(member2.getId(), 20);
+             assertThat(columns.ids()).hasSize(columns.size());
+          }
+
+         @Test
+         public void changeFeed() throws Exception {
+             //given
+             ChangeFeedCursor start = ChangeFeedCursor.since(LocalDateTime.now());
+             memberRepository.save(new Member("member1", 10));
+             memberRepository.save(new Member("member2", 20));
+             memberRepository.save(new Member("member3", 30));
+
+             //when
+             ChangeFeedSlice<Member> first = memberRepository.findChanges(start, 2);
+             ChangeFeedSlice<Member> second = memberRepository.findChanges(ChangeFeedCursor.decode(first.getNextCursor().encode()), 2);
+
+             //then 커서를 이어서 읽으면 중복 없이 모두 한 번씩 나온다.
+             assertThat(first.getContent()).extracting(Member::getUsername).containsExactly("member1", "member2");
+             assertThat(first.isHasNext()).isTrue();
+             assertThat(second.getContent()).extracting(Member::getUsername).containsExactly("member3");
+             assertThat(second.isHasNext()).isFalse();
+          }
+
+         @Test
+         public void softDelete() throws Exception {
+             //given
+             Member member1 = memberRepository.save(new Member("member1", 10));
+             Member member2 = memberRepository.save(new Member("member2", 10));
+
+             //when
+             memberRepository.delete(member1); //@SQLDelete
+             int count = memberRepository.softDeleteById(member2.getId()); //조회 없이 update
+
+             //then 조회에서는 빠지지만 purge 전까지 행은 남아있다.
+             assertThat(count).isEqualTo(1);
+             assertThat(memberRepository.findById(member1.getId())).isEmpty();
+             assertThat(memberRepository.findById(member2.getId())).isEmpty();
+             Number remaining = (Number) em.createNativeQuery("select count(*) from member where member_id in (:ids) and deleted = true")
+                     .setParameter("ids", Arrays.asList(member1.getId(), member2.getId()))
+                     .getSingleResult();
+             assertThat(remaining.longValue()).isEqualTo(2);
+
+             memberRepository.purgeDeleted(1000);
+             Number purged = (Number) em.createNativeQuery("select count(*) from member where member_id in (:ids)")
+                     .setParameter("ids", Arrays.asList(member1.getId(), member2.getId()))
+                     .getSingleResult();
+             assertThat(purged.longValue()).isEqualTo(0);
+          }
+
+         @Test
+         public void streamMemberDto() throws Exception {
+             //given
+             Team team = teamRepository.save(new Team("teamA"));
+             Member member1 = memberRepository.save(new Member("member1", 10, team));
+             Member member2 = memberRepository.save(new Member("member2", 20));
+             long offset = memberRepository.count() - 2; //id 순서로 읽으므로 방금 저장한 두 건이 마지막 페이지에 온다.
+
+             //when
+             List<String> rows = new ArrayList<>();
+             memberRepository.streamMemberDto(offset, 10, Sort.unsorted(),
+                     (id, username, teamName) -> rows.add(id + ":" + username + ":" + teamName));
+
+             //then
+             assertThat(rows).containsExactly(
+                     member1.getId() + ":member1:teamA",
+                     member2.getId() + ":member2:null");
+          }
+
+         @Test
+         public void largeTeamMembers() throws Exception {
+             //given
+             Team team = teamRepository.save(new Team("bigTeam"));
+             for (int i = 0; i < 25; i++) {
+                 memberRepository.save(new Member("member" + i, i, team));
+             }
+             em.flush();
+             em.clear();
+
+             //when extra lazy: size는 count 쿼리, changeTeam은 컬렉션을 초기화하지 않는다.
+             Team findTeam = teamRepository.findById(team.getId()).get();
+             assertThat(findTeam.getMembers().size()).isEqualTo(25);
+             new Member("newMember", 30, findTeam);
+             assertThat(Hibernate.isInitialized(findTeam.getMembers())).isFalse();
+
+             //then 페이지 / 키셋 배치
+             assertThat(memberRepository.countByTeamId(team.getId())).isEqualTo(25);
+             Slice<Member> slice = memberRepository.findByTeamIdOrderByIdAsc(team.getId(), PageRequest.of(1, 10));
+             assertThat(slice.getContent()).hasSize(10);
+             assertThat(slice.hasNext()).isTrue();
+
+             List<Integer> batchSizes = new ArrayList<>();
+             long total = memberRepository.forEachTeamMemberBatch(team.getId(), 10, batch -> batchSizes.add(batch.size()));
+             assertThat(total).isEqualTo(25);
+             assertThat(batchSizes).containsExactly(10, 10, 5);
+             assertThat(Hibernate.isInitialized(findTeam.getMembers())).isFalse();
+          }
+
+}
@@ -0,0 +1,73 @@
+package study.datajpa.repository.reactive;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.test.StepVerifier;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//R2DBC는 다른 커넥션을 쓰므로 JPA 쪽 데이터가 커밋되어 있어야 한다. (@Transactional 없이 저장)
+@SpringBootTest
+class ReactiveMemberRepositoryTest {
+
+    @Autowired ReactiveMemberRepository reactiveMemberRepository;
+    @Autowired ReactiveTeamRepository reactiveTeamRepository;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    @Test
+    public void findByUsername() throws Exception {
+        //given
+        String username = "reactive-" + UUID.randomUUID();
+        Team team = teamRepository.save(new Team("teamA"));
+        Member member = memberRepository.save(new Member(username, 10, team));
+
+        //when then JPA로 저장한 값과 같다.
+        StepVerifier.create(reactiveMemberRepository.findByUsername(username))
+                .assertNext(found -> {
+                    assertThat(found.getId()).isEqualTo(member.getId());
+                    assertThat(found.getUsername()).isEqualTo(username);
+                    assertThat(found.getAge()).isEqualTo(10);
+                    assertThat(found.getTeam().getId()).isEqualTo(team.getId());
+                })
+                .verifyComplete();
+
+        StepVerifier.create(reactiveTeamRepository.findById(team.getId()))
+                .assertNext(found -> assertThat(found.getName()).isEqualTo("teamA"))
+                .verifyComplete();
+    }
+
+    @Test
+    public void findByAgeWithBackpressure() throws Exception {
+        //given
+        int age = 1000 + (int) (Math.random() * 100000);
+        for (int i = 0; i < 5; i++) {
+            memberRepository.save(new Member("member" + i, age));
+        }
+
+        //when then 요청한 만큼만 받는다.
+        StepVerifier.create(reactiveMemberRepository.findByAge(age), 2)
+                .expectNextCount(2)
+                .thenRequest(3)
+                .expectNextCount(3)
+                .verifyComplete();
+    }
+
+    @Test
+    public void softDeletedMemberIsExcluded() throws Exception {
+        Member member = memberRepository.save(new Member("reactive-" + UUID.randomUUID(), 10));
+        transactionTemplate.executeWithoutResult(status -> memberRepository.softDeleteById(member.getId()));
+
+        StepVerifier.create(reactiveMemberRepository.findById(member.getId()))
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,122 @@
+package study.datajpa.repository.stateless;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Item;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//StatelessSession은 테스트 트랜잭션의 커넥션을 같이 쓰므로 롤백된다.
+@Transactional
+@SpringBootTest
+class StatelessMemberRepositoryTest {
+
+    @Autowired StatelessMemberRepository statelessMemberRepository;
+    @Autowired StatelessTeamRepository statelessTeamRepository;
+    @Autowired StatelessItemRepository statelessItemRepository;
+    @Autowired MemberRepository memberRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired EntityManager em;
+
+    @Test
+    public void insertAll() throws Exception {
+        //given
+        Team team = statelessTeamRepository.insert(new Team("teamA"));
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            members.add(new Member("stateless" + i, i, team));
+        }
+
+        //when
+        List<Member> inserted = statelessMemberRepository.insertAll(members);
+
+        //then 영속성 컨텍스트에는 없지만 DB(같은 트랜잭션)에는 있다.
+        Member first = inserted.get(0);
+        assertThat(first.getId()).isNotNull();
+        assertThat(first.getCreatedDate()).isNotNull(); //Auditing은 직접 채움
+        assertThat(first.getCreatedBy()).isNotNull();
+        assertThat(em.contains(first)).isFalse();
+
+        Member found = memberRepository.findById(first.getId()).get();
+        assertThat(found.getUsername()).isEqualTo("stateless0");
+        assertThat(found.getTeam().getName()).isEqualTo("teamA");
+        assertThat(found.getCreatedDate()).isNotNull();
+    }
+
+    @Test
+    public void updateAndDelete() throws Exception {
+        //given
+        Member member = statelessMemberRepository.insert(new Member("stateless", 10));
+
+        //when 변경 감지가 없으므로 update를 직접 호출
+        member.setAge(20);
+        statelessMemberRepository.update(member);
+
+        //then
+        assertThat(statelessMemberRepository.findById(member.getId()).get().getAge()).isEqualTo(20);
+        assertThat(member.getLastModifiedDate()).isNotNull();
+
+        //delete는 @SQLDelete를 따라 삭제 표시만 한다.
+        statelessMemberRepository.delete(member);
+        assertThat(statelessMemberRepository.findById(member.getId())).isEmpty();
+        Boolean deleted = jdbcTemplate.queryForObject("select deleted from member where member_id = ?", Boolean.class, member.getId());
+        assertThat(deleted).isTrue();
+    }
+
+    @Test
+    public void sameQueriesAsMemberRepository() throws Exception {
+        //given
+        Team team = statelessTeamRepository.insert(new Team("teamA"));
+        statelessMemberRepository.insertAll(List.of(
+                new Member("AAA", 10, team),
+                new Member("BBB", 20, team),
+                new Member("AAA", 30)));
+
+        //then
+        List<Long> expected = memberRepository.findUser("AAA", 10).stream().map(Member::getId).collect(Collectors.toList());
+        assertThat(statelessMemberRepository.findUser("AAA", 10)).extracting(Member::getId).containsExactlyElementsOf(expected);
+        assertThat(statelessMemberRepository.findByUsername("AAA")).hasSize(2);
+        assertThat(statelessMemberRepository.findByNames(List.of("AAA", "BBB"))).hasSize(3);
+        assertThat(statelessMemberRepository.findByUsernameAndAgeGreaterThan("AAA", 15)).hasSize(1);
+        assertThat(statelessMemberRepository.findMemberDto()).extracting("username").contains("AAA", "BBB");
+    }
+
+    @Test
+    public void scroll() throws Exception {
+        //given
+        int age = 1000 + (int) (Math.random() * 100000);
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            members.add(new Member("stateless" + i, age));
+        }
+        statelessMemberRepository.insertAll(members);
+
+        //when
+        AtomicLong ageSum = new AtomicLong();
+        long count = statelessMemberRepository.scrollByAge(age, m -> ageSum.addAndGet(m.getAge()));
+
+        //then
+        assertThat(count).isEqualTo(50);
+        assertThat(ageSum.get()).isEqualTo(50L * age);
+    }
+
+    @Test
+    public void item() throws Exception {
+        Item item = statelessItemRepository.insert(new Item("stateless-item"));
+
+        assertThat(item.getCreatedDate()).isNotNull();
+        assertThat(statelessItemRepository.findById("stateless-item")).isPresent();
+    }
+}
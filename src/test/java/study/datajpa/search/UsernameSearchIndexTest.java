@@ -0,0 +1,121 @@
+package study.datajpa.search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.stateless.StatelessMemberRepository;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//인덱스는 커밋된 뒤에 반영되므로 @Transactional 없이 실제로 커밋하면서 확인한다.
+@SpringBootTest(properties = "datajpa.search.rebuild-delay-ms=3600000") //스케줄러 대신 테스트에서 직접 rebuildIfRequested
+class UsernameSearchIndexTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired UsernameSearchIndex index;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired StatelessMemberRepository statelessMemberRepository;
+
+    @Test
+    public void ranking() throws Exception {
+        //given 다른 테스트 데이터와 겹치지 않는 이름
+        String name = "q" + UUID.randomUUID().toString().substring(0, 8);
+        memberRepository.save(new Member("xy" + name, 10));
+        memberRepository.save(new Member(name + "abc", 10));
+        memberRepository.save(new Member(name + "a", 10));
+        memberRepository.save(new Member(name, 10));
+        memberRepository.save(new Member(name + "a", 20));
+
+        //then 일치 > 앞부분 일치(같은 이름 회원이 많은 순, 짧은 순) > 중간 일치
+        assertThat(memberRepository.suggestUsernames(name.toUpperCase(), 10))
+                .containsExactly(name, name + "a", name + "abc", "xy" + name);
+        assertThat(memberRepository.suggestUsernames(name, 2)).containsExactly(name, name + "a");
+        assertThat(memberRepository.searchByUsername(name, 3))
+                .extracting(Member::getUsername)
+                .containsExactly(name, name + "a", name + "a");
+        assertThat(memberRepository.suggestUsernames(name.substring(2), 10)).contains("xy" + name); //중간 일치
+        assertThat(memberRepository.suggestUsernames(name + "zz", 10)).isEmpty();
+    }
+
+    @Test
+    public void syncWithEntityEvents() throws Exception {
+        //given
+        String name = "q" + UUID.randomUUID().toString().substring(0, 8);
+        Member member = memberRepository.save(new Member(name, 10));
+        assertThat(memberRepository.suggestUsernames(name, 10)).containsExactly(name);
+
+        //username 변경 (dirty checking)
+        transactionTemplate.executeWithoutResult(status ->
+                memberRepository.findById(member.getId()).get().setUsername(name + "new"));
+        assertThat(memberRepository.suggestUsernames(name, 10)).containsExactly(name + "new");
+
+        //롤백되면 인덱스도 그대로
+        transactionTemplate.executeWithoutResult(status -> {
+            memberRepository.save(new Member(name + "rollback", 10));
+            status.setRollbackOnly();
+        });
+        assertThat(memberRepository.suggestUsernames(name, 10)).containsExactly(name + "new");
+
+        //soft delete
+        memberRepository.deleteById(member.getId());
+        assertThat(memberRepository.suggestUsernames(name, 10)).isEmpty();
+    }
+
+    @Test
+    public void rebuild() throws Exception {
+        //given 엔티티 이벤트 없이 지운 회원 (벌크)
+        String name = "q" + UUID.randomUUID().toString().substring(0, 8);
+        Member member = memberRepository.save(new Member(name, 10));
+        transactionTemplate.executeWithoutResult(status -> memberRepository.softDeleteById(member.getId()));
+
+        //인덱스에는 남아 있지만 회원은 DB에서 다시 읽으므로 나오지 않는다.
+        assertThat(memberRepository.suggestUsernames(name, 10)).containsExactly(name);
+        assertThat(memberRepository.searchByUsername(name, 10)).isEmpty();
+
+        assertThat(index.isRebuildRequested()).isTrue(); //TeamStatsReconcileTrigger가 요청
+
+        //when
+        index.rebuildIfRequested();
+
+        //then
+        assertThat(memberRepository.suggestUsernames(name, 10)).isEmpty();
+    }
+
+    @Test
+    public void rebuildAfterStatelessWrite() throws Exception {
+        //given 엔티티 이벤트가 없는 StatelessSession insert
+        String name = "q" + UUID.randomUUID().toString().substring(0, 8);
+        statelessMemberRepository.insert(new Member(name, 10));
+        assertThat(index.isRebuildRequested()).isTrue();
+
+        //when
+        index.rebuildIfRequested();
+
+        //then
+        assertThat(memberRepository.suggestUsernames(name, 10)).containsExactly(name);
+        assertThat(index.isRebuildRequested()).isFalse();
+    }
+
+    @Test
+    public void refillAfterStaleEntries() throws Exception {
+        //given 순위가 높은 두 회원은 벌크로 지워져서 인덱스에만 남아 있다.
+        String name = "q" + UUID.randomUUID().toString().substring(0, 8);
+        Member exact = memberRepository.save(new Member(name, 10));
+        Member prefix = memberRepository.save(new Member(name + "a", 10));
+        memberRepository.save(new Member(name + "bb", 10));
+        transactionTemplate.executeWithoutResult(status -> {
+            memberRepository.softDeleteById(exact.getId());
+            memberRepository.softDeleteById(prefix.getId());
+        });
+
+        //then 지워진 후보를 건너뛰고 다음 순위로 limit개를 채운다.
+        assertThat(memberRepository.searchByUsername(name, 1))
+                .extracting(Member::getUsername)
+                .containsExactly(name + "bb");
+    }
+}
@@ -0,0 +1,158 @@
+package study.datajpa.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.datajpa.entity.Member;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.stats.TeamStatsReconciler;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "datajpa.write-behind.enabled=true",
+        "datajpa.write-behind.flush-interval-ms=3600000", //테스트에서 직접 flush
+        "datajpa.write-behind.journal-dir=${java.io.tmpdir}/datajpa-write-behind-test-${random.uuid}" //실행마다 새 저널
+})
+class MemberWriteBehindBufferTest {
+
+    @Autowired MemberWriteBehindBuffer buffer;
+    @Autowired MemberRepository memberRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired TeamStatsReconciler teamStatsReconciler;
+
+    @Test
+    public void coalesceConcurrentUpdates() throws Exception {
+        //given
+        Member member = memberRepository.save(new Member("member1", 10));
+        buffer.flush();
+        long flushedBefore = buffer.flushedRows();
+
+        //when 4개 스레드에서 1000번씩 +1
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    buffer.addAge(member.getId(), 1);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        buffer.flush();
+
+        //then 4000번의 변경이 UPDATE 한 건으로 반영된다.
+        Integer age = jdbcTemplate.queryForObject("select age from member where member_id = ?", Integer.class, member.getId());
+        assertThat(age).isEqualTo(4010);
+        assertThat(buffer.flushedRows() - flushedBefore).isEqualTo(1);
+    }
+
+    @Test
+    public void setThenAdd() throws Exception {
+        Member member = memberRepository.save(new Member("member1", 10));
+
+        buffer.addAge(member.getId(), 5);
+        buffer.setAge(member.getId(), 30);
+        buffer.addAge(member.getId(), 2);
+        buffer.flush();
+
+        Integer age = jdbcTemplate.queryForObject("select age from member where member_id = ?", Integer.class, member.getId());
+        assertThat(age).isEqualTo(32);
+    }
+
+    @Test
+    public void journalOrderMatchesBufferOrder(@TempDir Path dir) throws Exception {
+        //given 저널을 따로 쓰는 버퍼
+        Member member = memberRepository.save(new Member("member1", 10));
+        MemberWriteBehindBuffer buffer = new MemberWriteBehindBuffer(jdbcTemplate, transactionTemplate, teamStatsReconciler,
+                dir.toString(), false, Integer.MAX_VALUE);
+        buffer.recover();
+
+        //when 4개 스레드에서 같은 회원에 set과 add를 섞어서
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            int base = t * 1000;
+            executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (i % 2 == 0) {
+                        buffer.setAge(member.getId(), base + i);
+                    } else {
+                        buffer.addAge(member.getId(), 1);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        //then 지금 죽었다면 저널에서 복구했을 값과 버퍼가 반영한 값이 같다.
+        WriteBehindJournal restarted = new WriteBehindJournal(dir, false);
+        PendingMemberUpdate recovered = restarted.recover().get(member.getId());
+        restarted.close();
+        buffer.close(); //flush
+
+        Integer age = jdbcTemplate.queryForObject("select age from member where member_id = ?", Integer.class, member.getId());
+        assertThat(recovered.isAbsolute()).isTrue();
+        assertThat(age).isEqualTo(recovered.getAge() + recovered.getDelta());
+    }
+
+    @Test
+    public void recoverFromJournal(@TempDir Path dir) throws Exception {
+        //given 반영하지 못하고 죽은 상황
+        WriteBehindJournal crashed = new WriteBehindJournal(dir, false);
+        crashed.append(1L, PendingMemberUpdate.addAge(3));
+        crashed.append(1L, PendingMemberUpdate.addAge(4));
+        crashed.append(2L, PendingMemberUpdate.setAge(20));
+        crashed.close();
+
+        //when
+        WriteBehindJournal restarted = new WriteBehindJournal(dir, false);
+        Map<Long, PendingMemberUpdate> recovered = restarted.recover();
+        restarted.close();
+
+        //then
+        assertThat(recovered.get(1L).getDelta()).isEqualTo(7);
+        assertThat(recovered.get(2L).getAge()).isEqualTo(20);
+    }
+
+    @Test
+    public void flushRecordsWatermark() throws Exception {
+        Member member = memberRepository.save(new Member("member1", 10));
+
+        buffer.addAge(member.getId(), 1);
+        buffer.flush();
+
+        //batch update와 같은 트랜잭션에서 watermark가 올라간다.
+        Long watermark = jdbcTemplate.queryForObject("select max(flushed_segment) from write_behind_watermark", Long.class);
+        assertThat(watermark).isNotNull();
+    }
+
+    @Test
+    public void skipFlushedSegmentsOnRecover(@TempDir Path dir) throws Exception {
+        //given 세그먼트 0은 DB에 커밋했지만 지우기 전에 죽은 상황
+        WriteBehindJournal crashed = new WriteBehindJournal(dir, false);
+        crashed.append(1L, PendingMemberUpdate.addAge(3));
+        long flushed = crashed.rotate();
+        crashed.append(1L, PendingMemberUpdate.addAge(4));
+        crashed.close();
+
+        //when watermark = 0 으로 재시작
+        WriteBehindJournal restarted = new WriteBehindJournal(dir, false, flushed);
+        Map<Long, PendingMemberUpdate> recovered = restarted.recover();
+        restarted.close();
+
+        //then 커밋된 +3은 다시 더하지 않는다.
+        assertThat(recovered.get(1L).getDelta()).isEqualTo(4);
+        assertThat(dir.resolve("journal-" + flushed + ".log")).doesNotExist();
+    }
+}
@@ -0,0 +1,103 @@
+package study.datajpa.stats;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.entity.TeamStats;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+import study.datajpa.repository.TeamStatsRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//통계는 커밋 직전에 반영되므로 @Transactional 없이 실제로 커밋하면서 확인한다.
+@SpringBootTest(properties = "datajpa.team-stats.reconcile-delay-ms=3600000") //스케줄러 대신 테스트에서 직접 재계산
+class TeamStatsTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired TeamStatsRepository teamStatsRepository;
+    @Autowired TeamStatsReconciler reconciler;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void incremental() throws Exception {
+        //given
+        Team teamA = teamRepository.save(new Team("teamA"));
+        Team teamB = teamRepository.save(new Team("teamB"));
+        Member member1 = memberRepository.save(new Member("member1", 10, teamA));
+        memberRepository.save(new Member("member2", 20, teamA));
+        memberRepository.save(new Member("member3", 30, teamA));
+
+        assertStats(teamA, 3, 60);
+        assertStats(teamB, 0, 0); //팀을 만들면 빈 통계 행도 생긴다.
+
+        //changeTeam + 나이 변경 (dirty checking)
+        transactionTemplate.executeWithoutResult(status -> {
+            Member member = memberRepository.findById(member1.getId()).get();
+            member.changeTeam(teamRepository.findById(teamB.getId()).get());
+            member.setAge(15);
+        });
+        assertStats(teamA, 2, 50);
+        assertStats(teamB, 1, 15);
+
+        //soft delete
+        memberRepository.deleteById(member1.getId());
+        assertStats(teamB, 0, 0);
+
+        //롤백되면 통계도 그대로
+        transactionTemplate.executeWithoutResult(status -> {
+            memberRepository.save(new Member("member4", 40, teamA));
+            status.setRollbackOnly();
+        });
+        assertStats(teamA, 2, 50);
+        assertThat(teamStatsRepository.findById(teamA.getId()).get().getAverageAge()).isEqualTo(25.0);
+    }
+
+    @Test
+    public void reconcileAfterBulk() throws Exception {
+        //given
+        Team team = teamRepository.save(new Team("teamA"));
+        memberRepository.save(new Member("member1", 10, team));
+        memberRepository.save(new Member("member2", 20, team));
+        reconciler.reconcileIfRequested();
+
+        //when 벌크 연산은 엔티티 이벤트가 없으므로 재계산이 요청된다.
+        transactionTemplate.executeWithoutResult(status -> {
+            memberRepository.bulkAgePlus(0);
+            assertThat(reconciler.isRequested()).isFalse(); //커밋 전
+        });
+        assertThat(reconciler.isRequested()).isTrue();
+        reconciler.reconcileIfRequested();
+
+        //then
+        TeamStats stats = teamStatsRepository.findById(team.getId()).get();
+        assertThat(stats.getMemberCount()).isEqualTo(2);
+        assertThat(stats.getAgeSum()).isEqualTo(32);
+    }
+
+    @Test
+    public void missingRowComputedFromMembers() throws Exception {
+        //given 통계 행이 없는 팀 (TeamStats가 생기기 전 데이터와 같은 상황)
+        Team team = teamRepository.save(new Team("teamA"));
+        memberRepository.save(new Member("member1", 10, team));
+        jdbcTemplate.update("delete from team_stats where team_id = ?", team.getId());
+
+        //when
+        memberRepository.save(new Member("member2", 20, team));
+
+        //then 변화량(1명, 20)이 아니라 기존 회원까지 계산한 값
+        assertStats(team, 2, 30);
+    }
+
+    private void assertStats(Team team, long memberCount, long ageSum) {
+        TeamStats stats = teamStatsRepository.findById(team.getId()).get();
+        assertThat(stats.getMemberCount()).isEqualTo(memberCount);
+        assertThat(stats.getAgeSum()).isEqualTo(ageSum);
+    }
+}
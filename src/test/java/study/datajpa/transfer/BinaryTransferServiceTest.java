@@ -0,0 +1,136 @@
+package study.datajpa.transfer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import javax.persistence.EntityManager;
+import java.io.EOFException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Transactional
+@SpringBootTest
+class BinaryTransferServiceTest {
+
+    @Autowired BinaryTransferService transferService;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired EntityManager em;
+
+    @TempDir Path dir;
+
+    @Test
+    public void exportAndRead() throws Exception {
+        //given
+        Team team = teamRepository.save(new Team("teamA"));
+        Member member1 = memberRepository.save(new Member("회원1", 10, team));
+        Member member2 = memberRepository.save(new Member("member2", 20));
+        em.flush();
+
+        //when
+        Path file = dir.resolve(TransferTable.MEMBER.fileName());
+        long exported = transferService.export(TransferTable.MEMBER, file);
+
+        //then 일반 읽기와 mmap 읽기 모두 같은 값이 나온다.
+        Long rows = jdbcTemplate.queryForObject("select count(*) from member", Long.class);
+        assertThat(exported).isEqualTo(rows);
+        for (boolean memoryMapped : new boolean[]{false, true}) {
+            Map<Long, Object[]> read = new HashMap<>();
+            try (BinaryTableReader reader = new BinaryTableReader(TransferTable.MEMBER, file, memoryMapped)) {
+                Object[] row;
+                while ((row = reader.next()) != null) {
+                    read.put((Long) row[0], row);
+                }
+            }
+            assertThat(read).hasSize(rows.intValue());
+            assertThat(read.get(member1.getId())).contains("회원1", 10, team.getId(), false);
+            assertThat(read.get(member2.getId())[3]).isNull(); //team_id
+        }
+    }
+
+    @Test
+    public void exportAndImportAll() throws Exception {
+        //given
+        Team team = teamRepository.save(new Team("teamA"));
+        memberRepository.save(new Member("member1", 10, team));
+        memberRepository.save(new Member("member2", 20));
+        em.flush();
+        Long members = count("member");
+        Long teams = count("team");
+        transferService.exportAll(dir);
+        deleteAll();
+
+        //when
+        transferService.importAll(dir, false);
+
+        //then
+        assertThat(count("member")).isEqualTo(members);
+        assertThat(count("team")).isEqualTo(teams);
+        for (TransferTable table : TransferTable.values()) {
+            assertThat(ImportCheckpoint.pathOf(dir.resolve(table.fileName()))).doesNotExist();
+        }
+    }
+
+    @Test
+    public void resumeAfterCrash() throws Exception {
+        //given TEAM은 끝났고, MEMBER는 첫 배치를 커밋한 뒤 체크포인트를 쓰기 전에 죽은 상황
+        Team team = teamRepository.save(new Team("teamA"));
+        memberRepository.save(new Member("member1", 10, team));
+        memberRepository.save(new Member("member2", 20, team));
+        em.flush();
+        Long members = count("member");
+        transferService.exportAll(dir);
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from item");
+
+        Path teamFile = dir.resolve(TransferTable.TEAM.fileName());
+        new ImportCheckpoint(count("team"), Files.size(teamFile), true).write(teamFile);
+        Path memberFile = dir.resolve(TransferTable.MEMBER.fileName());
+        try (BinaryTableReader reader = new BinaryTableReader(TransferTable.MEMBER, memberFile, false)) {
+            new ImportCheckpoint(0, reader.dataStart()).write(memberFile);
+            jdbcTemplate.update(TransferTable.MEMBER.insertSql(), reader.next()); //커밋된 배치
+        }
+
+        //when TEAM을 다시 넣거나 이미 들어간 회원을 중복으로 넣으면 키 위반으로 실패한다.
+        transferService.importAll(dir, false);
+
+        //then
+        assertThat(count("member")).isEqualTo(members);
+        assertThat(ImportCheckpoint.pathOf(teamFile)).doesNotExist();
+    }
+
+    @Test
+    public void incompleteExportHasNoEnd() throws Exception {
+        //complete() 없이 닫힌 파일 = 내보내기 실패
+        Path file = dir.resolve(TransferTable.TEAM.fileName());
+        new BinaryTableWriter(TransferTable.TEAM, file).close();
+
+        try (BinaryTableReader reader = new BinaryTableReader(TransferTable.TEAM, file, false)) {
+            assertThatThrownBy(reader::next).isInstanceOf(EOFException.class);
+        }
+    }
+
+    private Long count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Long.class);
+    }
+
+    private void deleteAll() {
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+        jdbcTemplate.update("delete from item");
+    }
+}